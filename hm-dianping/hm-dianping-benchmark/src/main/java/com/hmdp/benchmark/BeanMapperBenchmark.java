@@ -0,0 +1,68 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.entity.Shop;
+import com.hmdp.entity.ShopType;
+import com.hmdp.utils.BeanMapper;
+import com.hmdp.utils.RedisData;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 22:40
+ * @description BeanMapper 的 json 读写，与 CacheClientBenchmark 中 hutool 的 serializeShop / deserializeShop / deserializeRedisData 对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BeanMapperBenchmark {
+
+    private final BeanMapper<Shop> shopMapper = BeanMapper.of(Shop.class);
+    private final BeanMapper<RedisData> redisDataMapper = BeanMapper.of(RedisData.class);
+    private final BeanMapper<ShopType> shopTypeMapper = BeanMapper.of(ShopType.class);
+
+    private Shop shop;
+    private String shopJson;
+    private String redisDataJson;
+    private String shopTypeJson;
+
+    @Setup
+    public void setup() {
+        shop = CacheClientBenchmark.sampleShop();
+        shopJson = shopMapper.toJson(shop);
+        RedisData redisData = new RedisData();
+        redisData.setData(shop);
+        redisData.setExpireTime(LocalDateTime.now().plusHours(1));
+        redisDataJson = redisDataMapper.toJson(redisData);
+        ShopType shopType = new ShopType();
+        shopType.setId(1L);
+        shopType.setName("美食");
+        shopType.setIcon("/types/ms.png");
+        shopType.setSort(1);
+        shopTypeJson = shopTypeMapper.toJson(shopType);
+    }
+
+    @Benchmark
+    public String serializeShop() {
+        return shopMapper.toJson(shop);
+    }
+
+    @Benchmark
+    public Shop deserializeShop() {
+        return shopMapper.fromJson(shopJson);
+    }
+
+    @Benchmark
+    public Shop deserializeRedisData() {
+        RedisData redisData = redisDataMapper.fromJson(redisDataJson);
+        return shopMapper.fromMap((Map<?, ?>) redisData.getData());
+    }
+
+    @Benchmark
+    public ShopType deserializeShopType() {
+        return shopTypeMapper.fromJson(shopTypeJson);
+    }
+}
@@ -0,0 +1,33 @@
+package com.hmdp.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 19:50
+ * @description 运行基准测试，默认带上 GC 分析(每次操作分配的字节数 gc.alloc.rate.norm)
+ * java -jar target/benchmarks.jar                     运行全部
+ * java -jar target/benchmarks.jar IdWorker -p backend=redis   只运行 id 生成器，连接真实 redis
+ * 其余参数与 JMH 命令行相同
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .forks(commandLine.getForkCount().orElse(1))
+                .warmupIterations(commandLine.getWarmupIterations().orElse(3))
+                .warmupTime(commandLine.getWarmupTime().orElse(TimeValue.seconds(2)))
+                .measurementIterations(commandLine.getMeasurementIterations().orElse(5))
+                .measurementTime(commandLine.getMeasurementTime().orElse(TimeValue.seconds(2)))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.hmdp.benchmark.support.RedisBackends;
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.RedisData;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.CACHE_SHOP_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_SHOP_TTL;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 19:30
+ * @description CacheClient 缓存命中路径：Shop / RedisData 的 json 序列化与反序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CacheClientBenchmark {
+
+    private static final Long SHOP_ID = 1L;
+    private static final String LOGICAL_PREFIX = "bench:logical:shop:";
+
+    @Param({"memory"})
+    private String backend;
+
+    private StringRedisTemplate stringRedisTemplate;
+    private CacheClient cacheClient;
+    private Shop shop;
+    private String shopJson;
+    private String redisDataJson;
+
+    @Setup
+    public void setup() {
+        stringRedisTemplate = RedisBackends.create(backend);
+        cacheClient = new CacheClient(stringRedisTemplate);
+        shop = sampleShop();
+        shopJson = JSONUtil.toJsonStr(shop);
+        RedisData redisData = new RedisData();
+        redisData.setData(shop);
+        redisData.setExpireTime(LocalDateTime.now().plusHours(1));
+        redisDataJson = JSONUtil.toJsonStr(redisData);
+
+        cacheClient.set(CACHE_SHOP_KEY + SHOP_ID, shop, CACHE_SHOP_TTL, TimeUnit.HOURS);
+        cacheClient.setWithLogicalExpire(LOGICAL_PREFIX + SHOP_ID, shop, 1L, TimeUnit.HOURS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RedisBackends.close(stringRedisTemplate);
+    }
+
+    @Benchmark
+    public String serializeShop() {
+        return JSONUtil.toJsonStr(shop);
+    }
+
+    @Benchmark
+    public Shop deserializeShop() {
+        return JSONUtil.toBean(shopJson, Shop.class);
+    }
+
+    @Benchmark
+    public Shop deserializeRedisData() {
+        RedisData redisData = JSONUtil.toBean(redisDataJson, RedisData.class);
+        return JSONUtil.toBean((JSONObject) redisData.getData(), Shop.class);
+    }
+
+    @Benchmark
+    public Shop queryWithPassThroughHit() {
+        return cacheClient.queryWithPassThrough(CACHE_SHOP_KEY, SHOP_ID, Shop.class,
+                id -> shop, CACHE_SHOP_TTL, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public Shop queryWithLogicalExpireHit() {
+        return cacheClient.queryWithLogicalExpire(LOGICAL_PREFIX, SHOP_ID, Shop.class,
+                id -> shop, 1L, TimeUnit.HOURS);
+    }
+
+    @Benchmark
+    public void setWithLogicalExpire() {
+        cacheClient.setWithLogicalExpire(LOGICAL_PREFIX + SHOP_ID, shop, 1L, TimeUnit.HOURS);
+    }
+
+    static Shop sampleShop() {
+        Shop shop = new Shop();
+        shop.setId(SHOP_ID);
+        shop.setName("103茶餐厅");
+        shop.setTypeId(1L);
+        shop.setImages("https://qcloud.dpfile.com/pc/jiclIsCKmOI2arxKN1Uf0Hx3PucIJH8q0QSz-Z8llzcN56-_QiKuOvyio1OOxsRtFoXqu0G3iT2T27qat3WhLVEuLYk00OmSS1IdNpm8K8sG4JN9RIm2mTKcbLtc2o2vfCF2ubeXzk49OsGrXt_KYDCngOyCwZK-s3fqawWswzk.jpg");
+        shop.setArea("大关");
+        shop.setAddress("金华路锦昌文华苑29号");
+        shop.setX(120.149192);
+        shop.setY(30.316078);
+        shop.setAvgPrice(80L);
+        shop.setSold(4215);
+        shop.setComments(3035);
+        shop.setScore(37);
+        shop.setOpenHours("10:00-22:00");
+        shop.setCreateTime(LocalDateTime.of(2021, 12, 22, 18, 10, 39));
+        shop.setUpdateTime(LocalDateTime.of(2022, 1, 13, 17, 32, 19));
+        return shop;
+    }
+}
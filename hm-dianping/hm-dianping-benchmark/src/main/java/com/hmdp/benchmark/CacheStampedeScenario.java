@@ -0,0 +1,183 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.hmdp.benchmark.support.InMemoryStringRedisTemplate;
+import com.hmdp.entity.Shop;
+import com.hmdp.utils.CacheClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.hmdp.utils.RedisConstants.CACHE_SHOP_KEY;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 20:10
+ * @description 缓存击穿场景测试：大量读线程同时读一个热点 key，key 按 TTL 周期性过期
+ * 对比 CacheClient 的几种查询策略：数据库查询次数、读延迟分布、读到旧数据的比例
+ * 数据库每个 TTL 周期更新一次(shop.sold 作为版本号)，读开始时数据库已经是新版本而返回旧版本，记为一次旧数据
+ * 运行：java -cp target/benchmarks.jar com.hmdp.benchmark.CacheStampedeScenario
+ * 参数：-Dstampede.readers(读线程数) -Dstampede.duration-ms(每个策略的运行时间) -Dstampede.ttl-seconds(缓存有效期)
+ *      -Dstampede.db-latency-ms(数据库查询耗时) -Dstampede.redis-latency-micros(每个 redis 命令的往返耗时)
+ */
+public class CacheStampedeScenario {
+
+    private static final int READERS = Integer.getInteger("stampede.readers", 200);
+    private static final long DURATION_MS = Long.getLong("stampede.duration-ms", 5000L);
+    private static final long TTL_SECONDS = Long.getLong("stampede.ttl-seconds", 1L);
+    private static final long DB_LATENCY_MS = Long.getLong("stampede.db-latency-ms", 50L);
+    private static final long REDIS_LATENCY_MICROS = Long.getLong("stampede.redis-latency-micros", 100L);
+
+    private static final Long SHOP_ID = 1L;
+
+    /**
+     * 查询策略
+     */
+    private interface Strategy {
+        /**
+         * 预热缓存
+         */
+        void warmUp(CacheClient cacheClient, Shop shop);
+
+        Shop query(CacheClient cacheClient, Function<Long, Shop> dbFallback);
+    }
+
+    private static final String[] NAMES = {"passThrough", "mutex", "logicalExpire"};
+    private static final Strategy[] STRATEGIES = {
+            new Strategy() {
+                public void warmUp(CacheClient cacheClient, Shop shop) {
+                    cacheClient.set(CACHE_SHOP_KEY + SHOP_ID, shop, TTL_SECONDS, TimeUnit.SECONDS);
+                }
+
+                public Shop query(CacheClient cacheClient, Function<Long, Shop> dbFallback) {
+                    return cacheClient.queryWithPassThrough(CACHE_SHOP_KEY, SHOP_ID, Shop.class,
+                            dbFallback, TTL_SECONDS, TimeUnit.SECONDS);
+                }
+            },
+            new Strategy() {
+                public void warmUp(CacheClient cacheClient, Shop shop) {
+                    cacheClient.set(CACHE_SHOP_KEY + SHOP_ID, shop, TTL_SECONDS, TimeUnit.SECONDS);
+                }
+
+                public Shop query(CacheClient cacheClient, Function<Long, Shop> dbFallback) {
+                    return cacheClient.queryWithMutex(CACHE_SHOP_KEY, SHOP_ID, Shop.class,
+                            dbFallback, TTL_SECONDS, TimeUnit.SECONDS);
+                }
+            },
+            new Strategy() {
+                public void warmUp(CacheClient cacheClient, Shop shop) {
+                    cacheClient.setWithLogicalExpire(CACHE_SHOP_KEY + SHOP_ID, shop, TTL_SECONDS, TimeUnit.SECONDS);
+                }
+
+                public Shop query(CacheClient cacheClient, Function<Long, Shop> dbFallback) {
+                    return cacheClient.queryWithLogicalExpire(CACHE_SHOP_KEY, SHOP_ID, Shop.class,
+                            dbFallback, TTL_SECONDS, TimeUnit.SECONDS);
+                }
+            }
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("readers=%d duration=%dms ttl=%ds dbLatency=%dms redisLatency=%dus%n",
+                READERS, DURATION_MS, TTL_SECONDS, DB_LATENCY_MS, REDIS_LATENCY_MICROS);
+        System.out.printf("%-14s %10s %8s %9s %9s %9s %9s %8s%n",
+                "strategy", "reads", "dbHits", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "stale%");
+        for (int i = 0; i < STRATEGIES.length; i++) {
+            if (args.length > 0 && !Arrays.asList(args).contains(NAMES[i])) {
+                continue;
+            }
+            run(NAMES[i], STRATEGIES[i]);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String name, Strategy strategy) throws Exception {
+        InMemoryStringRedisTemplate redis = new InMemoryStringRedisTemplate();
+        redis.setLatencyNanos(TimeUnit.MICROSECONDS.toNanos(REDIS_LATENCY_MICROS));
+        CacheClient cacheClient = new CacheClient(redis);
+
+        // 1. 模拟数据库：版本号每个 TTL 周期加一，查询有固定耗时
+        Shop origin = CacheClientBenchmark.sampleShop();
+        AtomicInteger dbVersion = new AtomicInteger(1);
+        AtomicLong dbHits = new AtomicLong();
+        Function<Long, Shop> dbFallback = id -> {
+            dbHits.incrementAndGet();
+            int version = dbVersion.get();
+            try {
+                Thread.sleep(DB_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Shop shop = BeanUtil.copyProperties(origin, Shop.class);
+            shop.setSold(version);
+            return shop;
+        };
+        Shop warm = BeanUtil.copyProperties(origin, Shop.class);
+        warm.setSold(1);
+        strategy.warmUp(cacheClient, warm);
+
+        ScheduledExecutorService updater = Executors.newSingleThreadScheduledExecutor();
+        updater.scheduleAtFixedRate(dbVersion::incrementAndGet, TTL_SECONDS, TTL_SECONDS, TimeUnit.SECONDS);
+
+        // 2. 并发读
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MS);
+        ExecutorService readers = Executors.newFixedThreadPool(READERS);
+        List<Future<long[]>> futures = new ArrayList<>(READERS);
+        AtomicLong stale = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+        for (int t = 0; t < READERS; t++) {
+            futures.add(readers.submit(() -> {
+                long[] latencies = new long[1024];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    int versionAtStart = dbVersion.get();
+                    long begin = System.nanoTime();
+                    Shop shop = strategy.query(cacheClient, dbFallback);
+                    long latency = System.nanoTime() - begin;
+                    if (shop == null) {
+                        misses.incrementAndGet();
+                    } else if (shop.getSold() < versionAtStart) {
+                        stale.incrementAndGet();
+                    }
+                    if (n == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, n * 2);
+                    }
+                    latencies[n++] = latency;
+                }
+                return Arrays.copyOf(latencies, n);
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] part = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + part.length);
+            System.arraycopy(part, 0, all, offset, part.length);
+        }
+        readers.shutdown();
+        updater.shutdownNow();
+
+        // 3. 输出
+        Arrays.sort(all);
+        System.out.printf("%-14s %10d %8d %9.2f %9.2f %9.2f %9.2f %7.2f%%%n",
+                name, all.length, dbHits.get(),
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6,
+                all.length == 0 ? 0 : stale.get() * 100.0 / all.length);
+        if (misses.get() > 0) {
+            System.out.printf("%-14s 返回 null 的读：%d%n", name, misses.get());
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
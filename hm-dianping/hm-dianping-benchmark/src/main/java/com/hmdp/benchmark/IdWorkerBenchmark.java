@@ -0,0 +1,76 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.hmdp.benchmark.support.RedisBackends;
+import com.hmdp.utils.IdGenerator;
+import com.hmdp.utils.RedisIdWorker;
+import com.hmdp.utils.SnowflakeIdWorker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 19:20
+ * @description id生成器：redis incr、号段模式、雪花算法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdWorkerBenchmark {
+
+    @Param({"incr", "segment", "snowflake"})
+    private String worker;
+
+    @Param({"memory"})
+    private String backend;
+
+    private StringRedisTemplate stringRedisTemplate;
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setup() {
+        stringRedisTemplate = RedisBackends.create(backend);
+        switch (worker) {
+            case "incr":
+            case "segment": {
+                RedisIdWorker redisIdWorker = new RedisIdWorker(stringRedisTemplate);
+                // 与 application.yaml 中 hmdp.id-worker 的配置对应
+                ReflectUtil.setFieldValue(redisIdWorker, "segmentMode", "segment".equals(worker));
+                ReflectUtil.setFieldValue(redisIdWorker, "segmentStep", 1000L);
+                idGenerator = redisIdWorker;
+                break;
+            }
+            case "snowflake": {
+                SnowflakeIdWorker snowflakeIdWorker = new SnowflakeIdWorker(stringRedisTemplate);
+                snowflakeIdWorker.init();
+                idGenerator = snowflakeIdWorker;
+                break;
+            }
+            default:
+                throw new IllegalArgumentException(worker);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (idGenerator instanceof RedisIdWorker) {
+            ((RedisIdWorker) idGenerator).destroy();
+        } else if (idGenerator instanceof SnowflakeIdWorker) {
+            ((SnowflakeIdWorker) idGenerator).destroy();
+        }
+        RedisBackends.close(stringRedisTemplate);
+    }
+
+    @Benchmark
+    public long nextId() {
+        return idGenerator.nextId("order");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextIdContended() {
+        return idGenerator.nextId("order");
+    }
+}
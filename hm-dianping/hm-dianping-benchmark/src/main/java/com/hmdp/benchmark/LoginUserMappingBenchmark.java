@@ -0,0 +1,65 @@
+package com.hmdp.benchmark;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.copier.CopyOptions;
+import com.hmdp.dto.UserDTO;
+import com.hmdp.utils.BeanMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 19:40
+ * @description 登录态 UserDTO 与 redis hash 之间的转换
+ * fillBeanWithMap：RefreshTokenInterceptor 每个请求执行一次
+ * beanToMap：UserServiceImpl.login 登录时执行一次
+ * mapperFromMap / mapperToMap：LoginSessionManager 使用的 BeanMapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoginUserMappingBenchmark {
+
+    private final BeanMapper<UserDTO> mapper = BeanMapper.of(UserDTO.class);
+    private Map<Object, Object> userMap;
+    private UserDTO userDTO;
+
+    @Setup
+    public void setup() {
+        // 与 opsForHash().entries() 返回的一样，值都是字符串
+        userMap = new HashMap<>();
+        userMap.put("id", "1010");
+        userMap.put("nickName", "user_hbbvqyzy");
+        userMap.put("icon", "/imgs/icons/kkjtbcr.jpg");
+
+        userDTO = new UserDTO();
+        userDTO.setId(1010L);
+        userDTO.setNickName("user_hbbvqyzy");
+        userDTO.setIcon("/imgs/icons/kkjtbcr.jpg");
+    }
+
+    @Benchmark
+    public UserDTO fillBeanWithMap() {
+        return BeanUtil.fillBeanWithMap(userMap, new UserDTO(), false);
+    }
+
+    @Benchmark
+    public Map<String, Object> beanToMap() {
+        return BeanUtil.beanToMap(userDTO, new HashMap<>(),
+                CopyOptions.create().setIgnoreNullValue(true)
+                        .setFieldValueEditor((fieldName, fieldValue) -> fieldValue != null ? fieldValue.toString() : null));
+    }
+
+    @Benchmark
+    public UserDTO mapperFromMap() {
+        return mapper.fromMap(userMap);
+    }
+
+    @Benchmark
+    public Map<String, Object> mapperToMap() {
+        return mapper.toMap(userDTO);
+    }
+}
@@ -0,0 +1,33 @@
+package com.hmdp.benchmark;
+
+import com.hmdp.utils.RegexUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 19:45
+ * @description RegexUtils 校验手机号、验证码(发送验证码和登录时执行)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegexUtilsBenchmark {
+
+    @Param({"13812345678", "1381234567x"})
+    private String phone;
+
+    @Param({"a1B2c3"})
+    private String code;
+
+    @Benchmark
+    public boolean isPhoneInvalid() {
+        return RegexUtils.isPhoneInvalid(phone);
+    }
+
+    @Benchmark
+    public boolean isCodeInvalid() {
+        return RegexUtils.isCodeInvalid(code);
+    }
+}
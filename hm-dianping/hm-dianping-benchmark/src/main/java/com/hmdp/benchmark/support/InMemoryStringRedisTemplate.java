@@ -0,0 +1,157 @@
+package com.hmdp.benchmark.support;
+
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 19:05
+ * @description 基准测试用的内存版 StringRedisTemplate
+ * 只实现被测代码用到的 string 操作(带 TTL)、delete、hasKey，lua 脚本交给 scriptHandler 处理(默认返回 1)，
+ * 默认测的是本地代码的开销，可以用 setLatencyNanos 给每个命令加上模拟的网络往返
+ */
+public class InMemoryStringRedisTemplate extends StringRedisTemplate {
+
+    private static class Entry {
+        private final String value;
+        // 0 表示永不过期
+        private final long expireAt;
+
+        Entry(String value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean expired(long now) {
+            return expireAt != 0 && expireAt <= now;
+        }
+    }
+
+    private final Map<String, Entry> data = new ConcurrentHashMap<>();
+    private final ValueOperations<String, String> valueOps;
+    private volatile BiFunction<List<String>, Object[], Object> scriptHandler = (keys, args) -> 1L;
+    // 每个命令模拟的往返延迟
+    private volatile long latencyNanos;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryStringRedisTemplate() {
+        this.valueOps = (ValueOperations<String, String>) Proxy.newProxyInstance(
+                ValueOperations.class.getClassLoader(), new Class<?>[]{ValueOperations.class},
+                (proxy, method, args) -> invokeValueOps(method.getName(), args));
+    }
+
+    public void setScriptHandler(BiFunction<List<String>, Object[], Object> scriptHandler) {
+        this.scriptHandler = scriptHandler;
+    }
+
+    public void setLatencyNanos(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public ValueOperations<String, String> opsForValue() {
+        return valueOps;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        roundTrip();
+        return data.remove(key) != null;
+    }
+
+    @Override
+    public Long delete(Collection<String> keys) {
+        return keys.stream().filter(this::delete).count();
+    }
+
+    @Override
+    public Boolean hasKey(String key) {
+        roundTrip();
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        roundTrip();
+        return (T) scriptHandler.apply(keys, args);
+    }
+
+    public void clear() {
+        data.clear();
+    }
+
+    private void roundTrip() {
+        long nanos = latencyNanos;
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    private Object invokeValueOps(String name, Object[] args) {
+        roundTrip();
+        String key = (String) args[0];
+        switch (name) {
+            case "get":
+                return get(key);
+            case "set":
+                data.put(key, new Entry((String) args[1], expireAt(args)));
+                return null;
+            case "setIfAbsent": {
+                long now = System.currentTimeMillis();
+                Entry entry = new Entry((String) args[1], expireAt(args));
+                // 已过期的 key 视为不存在
+                Entry result = data.compute(key, (k, old) -> old == null || old.expired(now) ? entry : old);
+                return result == entry;
+            }
+            case "increment": {
+                long delta = args.length > 1 ? ((Number) args[1]).longValue() : 1L;
+                Entry result = data.compute(key, (k, old) -> {
+                    if (old == null || old.expired(System.currentTimeMillis())) {
+                        return new Entry(String.valueOf(delta), 0L);
+                    }
+                    return new Entry(String.valueOf(Long.parseLong(old.value) + delta), old.expireAt);
+                });
+                return Long.parseLong(result.value);
+            }
+            default:
+                throw new UnsupportedOperationException("ValueOperations." + name);
+        }
+    }
+
+    private String get(String key) {
+        Entry entry = data.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expired(System.currentTimeMillis())) {
+            data.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * set/setIfAbsent 的 TTL 参数：(k, v)、(k, v, Duration)、(k, v, timeout, unit)
+     */
+    private static long expireAt(Object[] args) {
+        if (args.length == 3 && args[2] instanceof Duration) {
+            return System.currentTimeMillis() + ((Duration) args[2]).toMillis();
+        }
+        if (args.length == 4 && args[3] instanceof TimeUnit) {
+            return System.currentTimeMillis() + ((TimeUnit) args[3]).toMillis(((Number) args[2]).longValue());
+        }
+        return 0L;
+    }
+}
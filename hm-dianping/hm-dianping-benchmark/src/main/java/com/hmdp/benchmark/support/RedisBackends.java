@@ -0,0 +1,45 @@
+package com.hmdp.benchmark.support;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 19:10
+ * @description 基准测试的 redis 后端
+ * memory：内存版，只测本地开销
+ * redis：连接真实 redis(-Dbench.redis.host/-Dbench.redis.port/-Dbench.redis.password)，包含网络往返
+ */
+public final class RedisBackends {
+
+    private RedisBackends() {
+    }
+
+    public static StringRedisTemplate create(String backend) {
+        if ("memory".equals(backend)) {
+            return new InMemoryStringRedisTemplate();
+        }
+        if (!"redis".equals(backend)) {
+            throw new IllegalArgumentException("未知的 redis 后端: " + backend);
+        }
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                System.getProperty("bench.redis.host", "127.0.0.1"),
+                Integer.getInteger("bench.redis.port", 6379));
+        String password = System.getProperty("bench.redis.password", "");
+        if (!password.isEmpty()) {
+            config.setPassword(password);
+        }
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(config);
+        factory.afterPropertiesSet();
+        StringRedisTemplate template = new StringRedisTemplate(factory);
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    public static void close(StringRedisTemplate template) {
+        if (template.getConnectionFactory() instanceof LettuceConnectionFactory) {
+            ((LettuceConnectionFactory) template.getConnectionFactory()).destroy();
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.hmdp.config;
 
 import com.hmdp.utils.LoginInterceptor;
+import com.hmdp.utils.LoginSessionManager;
 import com.hmdp.utils.RefreshTokenInterceptor;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -18,7 +18,7 @@ import javax.annotation.Resource;
 public class MvcConfig implements WebMvcConfigurer {
 
     @Resource
-    private StringRedisTemplate stringRedisTemplate;
+    private LoginSessionManager loginSessionManager;
     /**
      * 添加拦截器
      * @param registry
@@ -27,9 +27,9 @@ public class MvcConfig implements WebMvcConfigurer {
     public void addInterceptors(InterceptorRegistry registry) {
         // 添加登录拦截器
         registry.addInterceptor(new LoginInterceptor())
-                .excludePathPatterns("/user/code", "/user/login", "/shop/**", "/voucher/**", "/shop-type/**", "/upload/**", "/blog/hot", "/blog/**")
+                .excludePathPatterns("/user/code", "/user/login", "/shop/**", "/voucher/**", "/shop-type/**", "/upload/**", "/blog/hot", "/blog/**", "/blog-comments/of/**")
                 .order(1); // 排除拦截，不对这些进行拦截
         // 添加刷新token拦截器
-        registry.addInterceptor(new RefreshTokenInterceptor(stringRedisTemplate)).addPathPatterns("/**").order(0); // order值越小，优先级越高，默认都为0
+        registry.addInterceptor(new RefreshTokenInterceptor(loginSessionManager)).addPathPatterns("/**").order(0); // order值越小，优先级越高，默认都为0
     }
 }
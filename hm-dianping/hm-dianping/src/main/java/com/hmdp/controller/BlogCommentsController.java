@@ -1,9 +1,12 @@
 package com.hmdp.controller;
 
 
-import org.springframework.web.bind.annotation.RequestMapping;
+import com.hmdp.dto.Result;
+import com.hmdp.entity.BlogComments;
+import com.hmdp.service.IBlogCommentsService;
+import org.springframework.web.bind.annotation.*;
 
-import org.springframework.web.bind.annotation.RestController;
+import javax.annotation.Resource;
 
 /**
  * <p>
@@ -17,4 +20,19 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/blog-comments")
 public class BlogCommentsController {
 
+    @Resource
+    private IBlogCommentsService blogCommentsService;
+
+    @PostMapping
+    public Result saveComment(@RequestBody BlogComments comment) {
+        // 发表评论
+        return blogCommentsService.saveComment(comment);
+    }
+
+    @GetMapping("/of/blog")
+    public Result queryComments(@RequestParam("id") Long blogId,
+                                @RequestParam(value = "cursor", required = false) String cursor) {
+        // 按时间倒序滚动分页查询博文的评论
+        return blogCommentsService.queryComments(blogId, cursor);
+    }
 }
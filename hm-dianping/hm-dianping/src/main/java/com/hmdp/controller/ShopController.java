@@ -2,10 +2,11 @@ package com.hmdp.controller;
 
 
 import cn.hutool.core.util.StrUtil;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.Shop;
 import com.hmdp.service.IShopService;
+import com.hmdp.utils.CountCache;
+import com.hmdp.utils.ScrollPage;
 import com.hmdp.utils.SystemConstants;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,9 +24,15 @@ import javax.annotation.Resource;
 @RequestMapping("/shop")
 public class ShopController {
 
+    // 按类型统计的商铺总数的缓存 key
+    private static final String COUNT_SHOP_TYPE = "shop:type:";
+
     @Resource
     public IShopService shopService;
 
+    @Resource
+    private CountCache countCache;
+
     /**
      * 根据id查询商铺信息
      * @param id 商铺id
@@ -46,6 +53,7 @@ public class ShopController {
     public Result saveShop(@RequestBody Shop shop) {
         // 写入数据库
         shopService.save(shop);
+        countCache.evict(COUNT_SHOP_TYPE + shop.getTypeId());
         // 返回店铺id
         return Result.ok(shop.getId());
     }
@@ -64,37 +72,49 @@ public class ShopController {
      * 根据商铺类型分页查询商铺信息
      * @param typeId 商铺类型
      * @param current 页码
+     * @param cursor 游标，传了(第一页传空串)时使用游标分页
      * @return 商铺列表
      */
     @GetMapping("/of/type")
     public Result queryShopByType(
             @RequestParam("typeId") Integer typeId,
-            @RequestParam(value = "current", defaultValue = "1") Integer current
+            @RequestParam(value = "current", defaultValue = "1") Integer current,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
-        // 根据类型分页查询
-        Page<Shop> page = shopService.query()
+        if (cursor != null) {
+            return shopService.queryShopByType(typeId, cursor);
+        }
+        // 根据类型分页查询(不查询总数)
+        ScrollPage<Shop> page = shopService.query()
                 .eq("type_id", typeId)
-                .page(new Page<>(current, SystemConstants.DEFAULT_PAGE_SIZE));
+                .page(new ScrollPage<>(current, SystemConstants.DEFAULT_PAGE_SIZE));
+        // 该类型的商铺总数单独缓存
+        long total = countCache.get(COUNT_SHOP_TYPE + typeId, () -> (long) shopService.query().eq("type_id", typeId).count());
         // 返回数据
-        return Result.ok(page.getRecords());
+        return Result.ok(page.getRecords(), total, page.hasMore());
     }
 
     /**
      * 根据商铺名称关键字分页查询商铺信息
      * @param name 商铺名称关键字
      * @param current 页码
+     * @param cursor 游标，传了(第一页传空串)时使用游标分页
      * @return 商铺列表
      */
     @GetMapping("/of/name")
     public Result queryShopByName(
             @RequestParam(value = "name", required = false) String name,
-            @RequestParam(value = "current", defaultValue = "1") Integer current
+            @RequestParam(value = "current", defaultValue = "1") Integer current,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
-        // 根据类型分页查询
-        Page<Shop> page = shopService.query()
+        if (cursor != null) {
+            return shopService.queryShopByName(name, cursor);
+        }
+        // 根据名称分页查询(不查询总数)
+        ScrollPage<Shop> page = shopService.query()
                 .like(StrUtil.isNotBlank(name), "name", name)
-                .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
+                .page(new ScrollPage<>(current, SystemConstants.MAX_PAGE_SIZE));
         // 返回数据
-        return Result.ok(page.getRecords());
+        return Result.ok(page.getRecords(), null, page.hasMore());
     }
 }
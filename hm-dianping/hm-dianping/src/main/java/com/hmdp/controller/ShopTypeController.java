@@ -6,6 +6,7 @@ import cn.hutool.json.JSONUtil;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.ShopType;
 import com.hmdp.service.IShopTypeService;
+import com.hmdp.utils.BeanMapper;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -51,18 +52,16 @@ public class ShopTypeController {
         // 2. 判断是否存在
         if (!shopTypeListInRedis.isEmpty()) {
             // 存在就返回
-            List<ShopType> shopTypeList = shopTypeListInRedis.stream().map(item -> {
-                return JSONUtil.toBean(item, ShopType.class);
-            }).collect(Collectors.toList());
+            BeanMapper<ShopType> mapper = BeanMapper.of(ShopType.class);
+            List<ShopType> shopTypeList = shopTypeListInRedis.stream().map(mapper::fromJson).collect(Collectors.toList());
 
             return Result.ok(shopTypeList);
         }
         // 3. 不存在就查数据库
         List<ShopType> typeList = typeService
                 .query().orderByAsc("sort").list();
-        List<String> redisList = typeList.stream().map(item -> {
-            return JSONUtil.toJsonStr(item);
-        }).collect(Collectors.toList());
+        BeanMapper<ShopType> mapper = BeanMapper.of(ShopType.class);
+        List<String> redisList = typeList.stream().map(mapper::toJson).collect(Collectors.toList());
 
         //5.将查询出来写入redis
         stringRedisTemplate.opsForList().rightPushAll(CACHE_SHOP_TYPE_KEY, redisList);
@@ -3,6 +3,8 @@ package com.hmdp.controller;
 
 import com.hmdp.dto.Result;
 import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.utils.SeckillAdmissionControl;
+import com.hmdp.utils.UserHolder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,6 +26,8 @@ public class VoucherOrderController {
 
     @Resource
     private IVoucherOrderService voucherOrderService;
+    @Resource
+    private SeckillAdmissionControl seckillAdmissionControl;
 
     /**
      * 抢购优惠券
@@ -33,7 +37,15 @@ public class VoucherOrderController {
      */
     @PostMapping("seckill/{id}")
     public Result seckillVoucher(@PathVariable("id") Long voucherId) {
-
-        return voucherOrderService.seckillVoucher(voucherId);
+        // 准入控制：令牌桶、并发上限、用户/优惠券滑动窗口，超限的请求不进入下单流程
+        String rejectMsg = seckillAdmissionControl.tryAcquire(voucherId, UserHolder.getUser().getId());
+        if (rejectMsg != null) {
+            return Result.fail(rejectMsg);
+        }
+        try {
+            return voucherOrderService.seckillVoucher(voucherId);
+        } finally {
+            seckillAdmissionControl.release();
+        }
     }
 }
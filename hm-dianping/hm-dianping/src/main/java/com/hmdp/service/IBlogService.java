@@ -1,5 +1,6 @@
 package com.hmdp.service;
 
+import com.hmdp.dto.Result;
 import com.hmdp.entity.Blog;
 import com.baomidou.mybatisplus.extension.service.IService;
 
@@ -13,4 +14,21 @@ import com.baomidou.mybatisplus.extension.service.IService;
  */
 public interface IBlogService extends IService<Blog> {
 
+    Result saveBlog(Blog blog);
+
+    Result likeBlog(Long id);
+
+    Result queryBlogLikes(Long id);
+
+    Result queryHotBlog(Integer current);
+
+    Result queryHotBlogByCursor(String cursor);
+
+    Result queryMyBlog(Integer current);
+
+    Result queryMyBlogByCursor(String cursor);
+
+    Result queryBlogById(Long id);
+
+    Result queryBlogOfFollow(Long max, Integer offset);
 }
@@ -17,4 +17,8 @@ public interface IShopService extends IService<Shop> {
     Result queryById(Long id);
 
     Result update(Shop shop);
+
+    Result queryShopByType(Integer typeId, String cursor);
+
+    Result queryShopByName(String name, String cursor);
 }
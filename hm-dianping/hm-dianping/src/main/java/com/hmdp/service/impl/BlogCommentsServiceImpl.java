@@ -1,11 +1,36 @@
 package com.hmdp.service.impl;
 
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.dto.CursorResult;
+import com.hmdp.dto.Result;
+import com.hmdp.dto.UserDTO;
+import com.hmdp.entity.Blog;
 import com.hmdp.entity.BlogComments;
 import com.hmdp.mapper.BlogCommentsMapper;
 import com.hmdp.service.IBlogCommentsService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.service.IBlogService;
+import com.hmdp.service.IUserService;
+import com.hmdp.utils.BeanMapper;
+import com.hmdp.utils.BlogCommentWindow;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.HotBlogRanking;
+import com.hmdp.utils.SeekCursor;
+import com.hmdp.utils.SystemConstants;
+import com.hmdp.utils.UserHolder;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.CACHE_BLOG_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_BLOG_TTL;
+
 /**
  * <p>
  *  服务实现类
@@ -14,7 +39,175 @@ import org.springframework.stereotype.Service;
  * @author 虎哥
  * @since 2021-12-22
  */
+@Slf4j
 @Service
 public class BlogCommentsServiceImpl extends ServiceImpl<BlogCommentsMapper, BlogComments> implements IBlogCommentsService {
 
+    private static final BeanMapper<BlogComments> COMMENT_MAPPER = BeanMapper.of(BlogComments.class);
+    // 评论内容的最大长度
+    private static final int MAX_CONTENT_LENGTH = 255;
+
+    @Resource
+    private IBlogService blogService;
+
+    @Resource
+    private IUserService userService;
+
+    @Resource
+    private CacheClient cacheClient;
+
+    @Resource
+    private BlogCommentWindow commentWindow;
+
+    @Resource
+    private HotBlogRanking hotBlogRanking;
+
+    /**
+     * 发表评论
+     * 评论写入数据库后放进 redis 的最新评论窗口，评论数只在 redis 中累加增量，由 BlogCounterFlusher 批量写回；
+     * 评论已经保存，之后 redis 出错不影响返回结果：删除窗口让下次查询重建，评论数直接更新数据库
+     * @param comment 评论
+     * @return 评论id
+     */
+    @Override
+    public Result saveComment(BlogComments comment) {
+        UserDTO user = UserHolder.getUser();
+        if (user == null) {
+            return Result.fail("请先登录");
+        }
+        if (StrUtil.isBlank(comment.getContent())) {
+            return Result.fail("评论内容不能为空");
+        }
+        if (comment.getContent().length() > MAX_CONTENT_LENGTH) {
+            return Result.fail("评论内容不能超过" + MAX_CONTENT_LENGTH + "个字");
+        }
+        // 1. 判断博文是否存在
+        Long blogId = comment.getBlogId();
+        Blog blog = blogId == null ? null
+                : cacheClient.queryWithPassThrough(CACHE_BLOG_KEY, blogId, Blog.class, blogService::getById, CACHE_BLOG_TTL, TimeUnit.MINUTES);
+        if (blog == null) {
+            return Result.fail("笔记不存在！");
+        }
+        // 2. 保存评论
+        LocalDateTime now = LocalDateTime.now();
+        comment.setId(null)
+                .setUserId(user.getId())
+                .setParentId(comment.getParentId() == null ? 0L : comment.getParentId())
+                .setAnswerId(comment.getAnswerId() == null ? 0L : comment.getAnswerId())
+                .setLiked(0)
+                .setStatus(false)
+                .setName(null)
+                .setIcon(null)
+                .setCreateTime(now)
+                .setUpdateTime(now);
+        save(comment);
+        // 3. 放进最新评论窗口，累加评论数
+        try {
+            commentWindow.push(blogId, COMMENT_MAPPER.toJson(comment));
+        } catch (Exception e) {
+            log.error("评论 {} 放进最新评论窗口失败", comment.getId(), e);
+            evictWindow(blogId);
+            blogService.update().setSql("comments = COALESCE(comments, 0) + 1").eq("id", blogId).update();
+        }
+        // 4. 更新热度
+        try {
+            hotBlogRanking.onComment(blogId);
+        } catch (Exception e) {
+            log.error("博文 {} 热度更新失败", blogId, e);
+        }
+        return Result.ok(comment.getId());
+    }
+
+    /**
+     * 查询博文的评论，按时间倒序游标分页
+     * 先从最新评论窗口中取，窗口不够一页时从数据库按 id 定位(blog_id = ? AND id < ?)补齐；
+     * 第一页从数据库补齐的评论同时接到窗口末尾，之后的第一页只读 redis
+     * @param blogId 博文id
+     * @param cursor 上一页返回的游标，第一页不传
+     * @return
+     */
+    @Override
+    public Result queryComments(Long blogId, String cursor) {
+        Long lastId;
+        try {
+            String[] last = SeekCursor.decode(cursor, 1);
+            lastId = last == null ? null : SeekCursor.toLong(last[0], false);
+        } catch (IllegalArgumentException e) {
+            return Result.fail(e.getMessage());
+        }
+        int size = SystemConstants.MAX_PAGE_SIZE;
+        // 1. 从窗口中取，多取一条判断是否还有下一页
+        BlogCommentWindow.Window window = commentWindow.read(blogId);
+        List<BlogComments> cached = parse(window.getComments());
+        List<BlogComments> records = cached.stream()
+                .filter(c -> lastId == null || c.getId() < lastId)
+                .limit(size + 1)
+                .collect(Collectors.toList());
+        // 2. 不够时从数据库补齐
+        if (records.size() <= size && !window.isComplete()) {
+            Long from = records.isEmpty() ? lastId : records.get(records.size() - 1).getId();
+            // 第一页顺便把窗口补满
+            int limit = lastId == null
+                    ? Math.max(size + 1 - records.size(), commentWindow.getWindowSize() - cached.size())
+                    : size + 1 - records.size();
+            List<BlogComments> older = list(new QueryWrapper<BlogComments>()
+                    .eq("blog_id", blogId)
+                    .lt(from != null, "id", from)
+                    .orderByDesc("id")
+                    .last("limit " + limit));
+            if (lastId == null) {
+                commentWindow.append(blogId, window,
+                        older.stream().map(COMMENT_MAPPER::toJson).collect(Collectors.toList()), older.size() < limit);
+            }
+            older.stream().limit(size + 1 - records.size()).forEach(records::add);
+        }
+        String next = null;
+        if (records.size() > size) {
+            records = records.subList(0, size);
+            next = SeekCursor.encode(records.get(size - 1).getId());
+        }
+        fillAuthors(records);
+        return Result.ok(new CursorResult(records, next));
+    }
+
+    /**
+     * 窗口可能缺少刚保存的评论，删除后由下次查询重建；删除也失败时窗口在有效期结束后过期
+     */
+    private void evictWindow(Long blogId) {
+        try {
+            commentWindow.evict(blogId);
+        } catch (Exception e) {
+            log.error("删除博文 {} 的最新评论窗口失败", blogId, e);
+        }
+    }
+
+    /**
+     * 解析窗口中的评论，按 id 倒序并去重(并发发表时放进窗口的顺序可能与 id 顺序不同)
+     */
+    private List<BlogComments> parse(List<String> jsons) {
+        Map<Long, BlogComments> comments = new TreeMap<>(Comparator.reverseOrder());
+        for (String json : jsons) {
+            BlogComments comment = COMMENT_MAPPER.fromJson(json);
+            comments.put(comment.getId(), comment);
+        }
+        return new ArrayList<>(comments.values());
+    }
+
+    /**
+     * 批量填充评论用户的昵称和头像
+     */
+    private void fillAuthors(List<BlogComments> comments) {
+        if (comments.isEmpty()) {
+            return;
+        }
+        Map<Long, UserDTO> users = userService.queryUserProfiles(
+                comments.stream().map(BlogComments::getUserId).collect(Collectors.toSet()));
+        for (BlogComments comment : comments) {
+            UserDTO user = users.get(comment.getUserId());
+            if (user != null) {
+                comment.setName(user.getNickName());
+                comment.setIcon(user.getIcon());
+            }
+        }
+    }
 }
@@ -1,11 +1,40 @@
 package com.hmdp.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.dto.CursorResult;
+import com.hmdp.dto.Result;
+import com.hmdp.dto.ScrollResult;
+import com.hmdp.dto.UserDTO;
 import com.hmdp.entity.Blog;
 import com.hmdp.mapper.BlogMapper;
 import com.hmdp.service.IBlogService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.service.IUserService;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.CountCache;
+import com.hmdp.utils.FeedPusher;
+import com.hmdp.utils.FeedReader;
+import com.hmdp.utils.HotBlogRanking;
+import com.hmdp.utils.ScrollPage;
+import com.hmdp.utils.SeekCursor;
+import com.hmdp.utils.SystemConstants;
+import com.hmdp.utils.UserHolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+
 /**
  * <p>
  *  服务实现类
@@ -17,4 +46,373 @@ import org.springframework.stereotype.Service;
 @Service
 public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IBlogService {
 
+    private static final DefaultRedisScript<Long> LIKE_BLOG_SCRIPT;
+    static {
+        LIKE_BLOG_SCRIPT = new DefaultRedisScript<>();
+        LIKE_BLOG_SCRIPT.setLocation(new ClassPathResource("like_blog.lua"));
+        LIKE_BLOG_SCRIPT.setResultType(Long.class);
+    }
+
+    // 点赞列表展示的用户数
+    private static final int LIKERS_SIZE = 5;
+    // 热门博文游标的来源 r：热度榜 d：数据库
+    private static final String CURSOR_RANKING = "r";
+    private static final String CURSOR_DB = "d";
+    // 用户博文数的总数缓存
+    private static final String COUNT_USER_BLOG = "blog:user:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private CacheClient cacheClient;
+
+    @Resource
+    private IUserService userService;
+
+    @Resource
+    private HotBlogRanking hotBlogRanking;
+
+    @Resource
+    private FeedPusher feedPusher;
+
+    @Resource
+    private FeedReader feedReader;
+
+    @Resource
+    private CountCache countCache;
+
+    /**
+     * 发布博文
+     * @param blog
+     * @return 博文id
+     */
+    @Override
+    public Result saveBlog(Blog blog) {
+        // 获取登录用户
+        UserDTO user = UserHolder.getUser();
+        blog.setUserId(user.getId());
+        // 保存探店博文
+        save(blog);
+        countCache.evict(COUNT_USER_BLOG + user.getId());
+        // 新博文进入热度榜
+        hotBlogRanking.onPublish(blog.getId());
+        // 推送到粉丝的收件箱
+        feedPusher.publish(user.getId(), blog.getId(), System.currentTimeMillis());
+        // 返回id
+        return Result.ok(blog.getId());
+    }
+
+    /**
+     * 点赞/取消点赞
+     * 点赞记录保存在 redis zset 中(member：用户id，score：点赞时间)，同一用户只能点赞一次；
+     * 点赞数只在 redis 中累加增量，由 BlogCounterFlusher 定时批量写回数据库
+     * @param id 博文id
+     * @return
+     */
+    @Override
+    public Result likeBlog(Long id) {
+        UserDTO user = UserHolder.getUser();
+        if (user == null) {
+            return Result.fail("请先登录");
+        }
+        // 1. 判断博文是否存在(缓存，避免每次点赞都查询数据库)
+        Blog blog = cacheClient.queryWithPassThrough(CACHE_BLOG_KEY, id, Blog.class, this::getById, CACHE_BLOG_TTL, TimeUnit.MINUTES);
+        if (blog == null) {
+            return Result.fail("笔记不存在！");
+        }
+        // 2. 切换点赞状态并累加增量
+        Long delta = stringRedisTemplate.execute(LIKE_BLOG_SCRIPT,
+                Arrays.asList(BLOG_LIKED_KEY + id, BLOG_LIKED_DELTA_KEY),
+                user.getId().toString(), String.valueOf(System.currentTimeMillis()), id.toString());
+        // 3. 更新热度
+        if (delta != null) {
+            hotBlogRanking.onLike(id, delta);
+        }
+        return Result.ok();
+    }
+
+    /**
+     * 查询最早点赞的用户
+     * @param id 博文id
+     * @return 按点赞时间排序的用户
+     */
+    @Override
+    public Result queryBlogLikes(Long id) {
+        // 1. 查询最早点赞的用户 zrange key 0 4
+        Set<String> top = stringRedisTemplate.opsForZSet().range(BLOG_LIKED_KEY + id, 0, LIKERS_SIZE - 1);
+        if (top == null || top.isEmpty()) {
+            return Result.ok(Collections.emptyList());
+        }
+        // 2. 批量查询用户，按点赞顺序返回
+        List<Long> ids = top.stream().map(Long::valueOf).collect(Collectors.toList());
+        Map<Long, UserDTO> users = userService.queryUserProfiles(ids);
+        List<UserDTO> userDTOS = ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return Result.ok(userDTOS);
+    }
+
+    /**
+     * 热门博文 从热度榜分页，榜单未初始化时按点赞数查询数据库
+     * @param current 页码
+     * @return
+     */
+    @Override
+    public Result queryHotBlog(Integer current) {
+        int size = SystemConstants.MAX_PAGE_SIZE;
+        List<Blog> records;
+        boolean hasMore;
+        if (hotBlogRanking.isReady()) {
+            // 按热度顺序返回，多取的一条只用来判断是否还有下一页
+            List<Long> ids = hotBlogRanking.page(current, size);
+            hasMore = ids.size() > size;
+            records = listInOrder(hasMore ? ids.subList(0, size) : ids);
+        } else {
+            ScrollPage<Blog> page = query()
+                    .orderByDesc("liked")
+                    .page(new ScrollPage<>(current, size));
+            records = page.getRecords();
+            hasMore = page.hasMore();
+        }
+        // 查询用户和当前用户是否点赞
+        fillAuthors(records);
+        fillIsLike(records);
+        return Result.ok(records, null, hasMore);
+    }
+
+    /**
+     * 热门博文 游标分页
+     * 榜单中的博文游标为 (r, 分数, 博文id)；榜单未初始化时按点赞数查询数据库，游标为 (d, 点赞数, 博文id)，
+     * 用 (liked, id) < (?, ?) 定位下一页；同一次翻页沿用第一页的来源
+     * @param cursor 上一页返回的游标，第一页为空串
+     * @return
+     */
+    @Override
+    public Result queryHotBlogByCursor(String cursor) {
+        String[] last;
+        Long lastId;
+        Double lastScore = null;
+        Integer lastLiked = null;
+        try {
+            last = SeekCursor.decode(cursor, 3);
+            if (last != null && !CURSOR_RANKING.equals(last[0]) && !CURSOR_DB.equals(last[0])) {
+                return Result.fail("无效的游标");
+            }
+            lastId = last == null ? null : SeekCursor.toLong(last[2], false);
+            if (last != null && CURSOR_RANKING.equals(last[0])) {
+                lastScore = SeekCursor.toDouble(last[1], false);
+            } else if (last != null) {
+                lastLiked = SeekCursor.toInteger(last[1], true);
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.fail(e.getMessage());
+        }
+        int size = SystemConstants.MAX_PAGE_SIZE;
+        List<Blog> records;
+        String next = null;
+        if (last == null ? hotBlogRanking.isReady() : CURSOR_RANKING.equals(last[0])) {
+            // 多取一条判断是否还有下一页
+            List<ZSetOperations.TypedTuple<String>> tuples =
+                    hotBlogRanking.pageAfter(lastScore, lastId == null ? null : lastId.toString(), size + 1);
+            if (tuples.size() > size) {
+                tuples = tuples.subList(0, size);
+                ZSetOperations.TypedTuple<String> tail = tuples.get(size - 1);
+                next = SeekCursor.encode(CURSOR_RANKING, tail.getScore(), tail.getValue());
+            }
+            records = listInOrder(tuples.stream().map(t -> Long.valueOf(t.getValue())).collect(Collectors.toList()));
+        } else {
+            QueryWrapper<Blog> wrapper = new QueryWrapper<>();
+            SeekCursor.seek(wrapper, "liked", lastLiked, lastId, true);
+            records = list(wrapper.last("limit " + (size + 1)));
+            if (records.size() > size) {
+                records = records.subList(0, size);
+                Blog tail = records.get(size - 1);
+                next = SeekCursor.encode(CURSOR_DB, tail.getLiked(), tail.getId());
+            }
+        }
+        fillAuthors(records);
+        fillIsLike(records);
+        return Result.ok(new CursorResult(records, next));
+    }
+
+    /**
+     * 我的博文 不查询总数的分页，总数(博文数)单独缓存
+     * @param current 页码
+     * @return
+     */
+    @Override
+    public Result queryMyBlog(Integer current) {
+        // 获取登录用户
+        UserDTO user = UserHolder.getUser();
+        if (user == null) {
+            return Result.fail("请先登录");
+        }
+        // 根据用户查询
+        ScrollPage<Blog> page = query()
+                .eq("user_id", user.getId()).page(new ScrollPage<>(current, SystemConstants.MAX_PAGE_SIZE));
+        // 获取当前页数据
+        List<Blog> records = page.getRecords();
+        fillIsLike(records);
+        long total = countCache.get(COUNT_USER_BLOG + user.getId(), () -> (long) query().eq("user_id", user.getId()).count());
+        return Result.ok(records, total, page.hasMore());
+    }
+
+    /**
+     * 我的博文 游标分页，按 id 定位下一页
+     * @param cursor 上一页返回的游标，第一页为空串
+     * @return
+     */
+    @Override
+    public Result queryMyBlogByCursor(String cursor) {
+        Long lastId;
+        try {
+            String[] last = SeekCursor.decode(cursor, 1);
+            lastId = last == null ? null : SeekCursor.toLong(last[0], false);
+        } catch (IllegalArgumentException e) {
+            return Result.fail(e.getMessage());
+        }
+        UserDTO user = UserHolder.getUser();
+        if (user == null) {
+            return Result.fail("请先登录");
+        }
+        int size = SystemConstants.MAX_PAGE_SIZE;
+        QueryWrapper<Blog> wrapper = new QueryWrapper<Blog>().eq("user_id", user.getId());
+        SeekCursor.seek(wrapper, lastId, false);
+        List<Blog> records = list(wrapper.last("limit " + (size + 1)));
+        String next = null;
+        if (records.size() > size) {
+            records = records.subList(0, size);
+            next = SeekCursor.encode(records.get(size - 1).getId());
+        }
+        fillIsLike(records);
+        return Result.ok(new CursorResult(records, next));
+    }
+
+    /**
+     * 博文详情
+     * @param id 博文id
+     * @return
+     */
+    @Override
+    public Result queryBlogById(Long id) {
+        Blog blog = cacheClient.queryWithPassThrough(CACHE_BLOG_KEY, id, Blog.class, this::getById, CACHE_BLOG_TTL, TimeUnit.MINUTES);
+        if (blog == null) {
+            return Result.fail("笔记不存在！");
+        }
+        List<Blog> blogs = Collections.singletonList(blog);
+        fillAuthors(blogs);
+        fillIsLike(blogs);
+        return Result.ok(blog);
+    }
+
+    /**
+     * 关注的人发布的博文 从收件箱(及关注的大V的发件箱)滚动分页
+     * 相当于 ZREVRANGEBYSCORE key max 0 LIMIT offset count，max 为上一页最小的时间戳，
+     * offset 为上一页中与最小时间戳相同的条数，时间戳相同的博文不会重复或遗漏
+     * @param max 上一页最小的时间戳，第一页不传
+     * @param offset 上一页中与最小时间戳相同的条数，第一页为 0
+     * @return
+     */
+    @Override
+    public Result queryBlogOfFollow(Long max, Integer offset) {
+        UserDTO user = UserHolder.getUser();
+        if (user == null) {
+            return Result.fail("请先登录");
+        }
+        if (max == null) {
+            max = System.currentTimeMillis();
+        }
+        // 1. 查询收件箱，合并关注的大V的发件箱
+        List<ZSetOperations.TypedTuple<String>> tuples = feedReader.read(user.getId(), max, offset, SystemConstants.MAX_PAGE_SIZE);
+        ScrollResult r = new ScrollResult();
+        if (tuples.isEmpty()) {
+            r.setList(Collections.emptyList());
+            r.setMinTime(max);
+            r.setOffset(offset);
+            return Result.ok(r);
+        }
+        // 2. 解析博文id、最小时间戳和与最小时间戳相同的条数
+        List<Long> ids = new ArrayList<>(tuples.size());
+        long minTime = 0;
+        int os = 0;
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            ids.add(Long.valueOf(tuple.getValue()));
+            long time = tuple.getScore().longValue();
+            if (time == minTime) {
+                os++;
+            } else {
+                minTime = time;
+                os = 1;
+            }
+        }
+        // 整页的时间戳都与上一页最小的相同，需要接着上一页的 offset 跳过
+        if (minTime == max) {
+            os += offset;
+        }
+        // 3. 按收件箱顺序查询博文，已删除的博文跳过
+        List<Blog> records = listInOrder(ids);
+        fillAuthors(records);
+        fillIsLike(records);
+        r.setList(records);
+        r.setMinTime(minTime);
+        r.setOffset(os);
+        return Result.ok(r);
+    }
+
+    /**
+     * 按 ids 的顺序查询博文，已删除的博文跳过
+     */
+    private List<Blog> listInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Blog> blogs = listByIds(ids).stream()
+                .collect(Collectors.toMap(Blog::getId, Function.identity()));
+        return ids.stream().map(blogs::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * 批量判断当前用户是否点赞过，一页博文只用一次 pipeline 执行 ZSCORE
+     */
+    private void fillIsLike(List<Blog> blogs) {
+        if (blogs.isEmpty()) {
+            return;
+        }
+        UserDTO user = UserHolder.getUser();
+        if (user == null) {
+            // 未登录，都没有点赞
+            blogs.forEach(blog -> blog.setIsLike(false));
+            return;
+        }
+        byte[] member = user.getId().toString().getBytes(StandardCharsets.UTF_8);
+        List<Object> scores = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Blog blog : blogs) {
+                connection.zScore((BLOG_LIKED_KEY + blog.getId()).getBytes(StandardCharsets.UTF_8), member);
+            }
+            return null;
+        });
+        for (int i = 0; i < blogs.size(); i++) {
+            blogs.get(i).setIsLike(scores.get(i) != null);
+        }
+    }
+
+    /**
+     * 批量填充博文作者的昵称和头像
+     */
+    private void fillAuthors(List<Blog> blogs) {
+        if (blogs.isEmpty()) {
+            return;
+        }
+        Map<Long, UserDTO> users = userService.queryUserProfiles(
+                blogs.stream().map(Blog::getUserId).collect(Collectors.toSet()));
+        for (Blog blog : blogs) {
+            UserDTO user = users.get(blog.getUserId());
+            if (user != null) {
+                blog.setName(user.getNickName());
+                blog.setIcon(user.getIcon());
+            }
+        }
+    }
 }
@@ -1,11 +1,21 @@
 package com.hmdp.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.dto.Result;
+import com.hmdp.dto.UserDTO;
 import com.hmdp.entity.Follow;
 import com.hmdp.mapper.FollowMapper;
 import com.hmdp.service.IFollowService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.service.IUserService;
+import com.hmdp.utils.FollowGraph;
+import com.hmdp.utils.UserHolder;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.util.*;
+
 /**
  * <p>
  *  服务实现类
@@ -17,4 +27,65 @@ import org.springframework.stereotype.Service;
 @Service
 public class FollowServiceImpl extends ServiceImpl<FollowMapper, Follow> implements IFollowService {
 
+    @Resource
+    private IUserService userService;
+
+    @Resource
+    private FollowGraph followGraph;
+
+    /**
+     * 关注/取关 先写 tb_follow，成功后再写 redis 中的关注 set
+     * @param followUserId 被关注的用户id
+     * @param isFollow true：关注 false：取关
+     * @return
+     */
+    @Override
+    public Result follow(Long followUserId, Boolean isFollow) {
+        Long userId = UserHolder.getUser().getId();
+        if (userId.equals(followUserId)) {
+            return Result.fail("不能关注自己");
+        }
+        if (Boolean.TRUE.equals(isFollow)) {
+            // 1. 关注，(user_id, follow_user_id) 上有唯一索引，重复关注直接当作成功
+            try {
+                save(new Follow().setUserId(userId).setFollowUserId(followUserId));
+            } catch (DuplicateKeyException e) {
+                // 已经关注过
+            }
+            followGraph.follow(userId, followUserId);
+        } else {
+            // 2. 取关
+            remove(new QueryWrapper<Follow>().eq("user_id", userId).eq("follow_user_id", followUserId));
+            followGraph.unfollow(userId, followUserId);
+        }
+        return Result.ok();
+    }
+
+    /**
+     * 是否关注 SISMEMBER
+     * @param followUserId 被关注的用户id
+     * @return
+     */
+    @Override
+    public Result isFollow(Long followUserId) {
+        Long userId = UserHolder.getUser().getId();
+        return Result.ok(followGraph.isFollowing(userId, followUserId));
+    }
+
+    /**
+     * 共同关注 SINTER 求交集，再批量查询用户
+     * @param id 目标用户id
+     * @return
+     */
+    @Override
+    public Result followCommons(Long id) {
+        Long userId = UserHolder.getUser().getId();
+        Set<Long> common = followGraph.commonFollows(userId, id);
+        if (common.isEmpty()) {
+            return Result.ok(Collections.emptyList());
+        }
+        Map<Long, UserDTO> users = userService.queryUserProfiles(common);
+        List<UserDTO> userDTOS = new ArrayList<>(users.values());
+        return Result.ok(userDTOS);
+    }
 }
@@ -5,6 +5,8 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONNull;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.dto.CursorResult;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.Shop;
 import com.hmdp.mapper.ShopMapper;
@@ -13,6 +15,8 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmdp.utils.CacheClient;
 import com.hmdp.utils.RedisConstants;
 import com.hmdp.utils.RedisData;
+import com.hmdp.utils.SeekCursor;
+import com.hmdp.utils.SystemConstants;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +24,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.Resource;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -275,6 +280,45 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
         return Result.ok();
     }
 
+    /**
+     * 根据商铺类型游标分页查询，按 id 定位下一页(type_id 索引上直接定位)
+     * @param typeId 商铺类型
+     * @param cursor 上一页返回的游标，第一页为空串
+     */
+    @Override
+    public Result queryShopByType(Integer typeId, String cursor) {
+        return queryByCursor(new QueryWrapper<Shop>().eq("type_id", typeId), cursor, SystemConstants.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * 根据商铺名称关键字游标分页查询，按 id 定位下一页
+     * @param name 商铺名称关键字
+     * @param cursor 上一页返回的游标，第一页为空串
+     */
+    @Override
+    public Result queryShopByName(String name, String cursor) {
+        return queryByCursor(new QueryWrapper<Shop>().like(StrUtil.isNotBlank(name), "name", name), cursor, SystemConstants.MAX_PAGE_SIZE);
+    }
+
+    private Result queryByCursor(QueryWrapper<Shop> wrapper, String cursor, int size) {
+        Long lastId;
+        try {
+            String[] last = SeekCursor.decode(cursor, 1);
+            lastId = last == null ? null : SeekCursor.toLong(last[0], false);
+        } catch (IllegalArgumentException e) {
+            return Result.fail(e.getMessage());
+        }
+        SeekCursor.seek(wrapper, lastId, false);
+        // 多取一条判断是否还有下一页
+        List<Shop> shops = list(wrapper.last("limit " + (size + 1)));
+        String next = null;
+        if (shops.size() > size) {
+            shops = shops.subList(0, size);
+            next = SeekCursor.encode(shops.get(size - 1).getId());
+        }
+        return Result.ok(new CursorResult(shops, next));
+    }
+
     /**
      * 模拟查询店铺 写入逻辑过期时间
      * 缓存预热 使用测试类 直接调用该方法写入
@@ -1,9 +1,8 @@
 package com.hmdp.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.bean.copier.CopyOptions;
-import cn.hutool.core.lang.UUID;
 import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmdp.dto.LoginFormDTO;
 import com.hmdp.dto.Result;
@@ -11,19 +10,29 @@ import com.hmdp.dto.UserDTO;
 import com.hmdp.entity.User;
 import com.hmdp.mapper.UserMapper;
 import com.hmdp.service.IUserService;
+import com.hmdp.utils.BeanMapper;
+import com.hmdp.utils.LoginSessionManager;
 import com.hmdp.utils.RedisConstants;
 import com.hmdp.utils.RegexUtils;
+import com.hmdp.utils.SmsCodeDispatcher;
+import com.hmdp.utils.UserPhoneIndex;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpSession;
-
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+
 import static com.hmdp.utils.RedisConstants.*;
 import static com.hmdp.utils.SystemConstants.USER_NICK_NAME_PREFIX;
 
@@ -42,6 +51,36 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
     @Resource
     private StringRedisTemplate stringRedisTemplate; // SpringDataRedis提供的 api
 
+    @Resource
+    private LoginSessionManager loginSessionManager; // 登录态管理
+
+    @Resource
+    private UserPhoneIndex userPhoneIndex; // 手机号 -> 用户id 索引
+
+    @Resource
+    private SmsCodeDispatcher smsCodeDispatcher; // 短信验证码发送
+
+    // 本地缓存用户信息的最大条数，超过后清空
+    private static final int MAX_LOCAL_PROFILES = 100000;
+    private static final BeanMapper<UserDTO> USER_MAPPER = BeanMapper.of(UserDTO.class);
+
+    // 本地缓存用户信息的时间(毫秒)
+    @Value("${hmdp.user.profile.local-ttl-millis:10000}")
+    private long profileLocalTtlMillis;
+
+    // 用户id -> 用户信息，用户不存在时 user 为 null
+    private final Map<Long, CachedProfile> localProfiles = new ConcurrentHashMap<>();
+
+    private static class CachedProfile {
+        private final UserDTO user;
+        private final long expireAt;
+
+        CachedProfile(UserDTO user, long expireAt) {
+            this.user = user;
+            this.expireAt = expireAt;
+        }
+    }
+
     /**
      * 发送验证码
      *
@@ -61,11 +100,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
 
 //        // 4. 将验证码保存到session
 //        session.setAttribute("code", code);
-        // 4. 将验证码保存到redis  set key value ex 120
-        stringRedisTemplate.opsForValue().set(LOGIN_CODE_KEY + phone, code, LOGIN_CODE_TTL, TimeUnit.MINUTES); // 过期时间两分钟
-
-        // 5. 发送验证码
-        log.debug("发送短信验证码成功，验证码：{}", code);
+        // 4. 将验证码保存到redis(同时检查发送间隔和每日上限)，短信放进队列异步发送
+        String error = smsCodeDispatcher.send(phone, code);
+        if (error != null) {
+            return Result.fail(error);
+        }
 
         // 返回 ok
         return Result.ok();
@@ -97,7 +136,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
             return Result.fail("验证码错误!");
         }
         // 5. 一致，根据手机号查询用户信息
-        User user = query().eq("phone", phone).one();
+        User user = queryByPhone(phone);
 
         // 6. 判断用户是否存在
         if (user == null) {
@@ -106,27 +145,54 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         }
 //        // 8. 保存用户信息到 session
 //        session.setAttribute("user", BeanUtil.copyProperties(user, UserDTO.class));
-        // 8. 保存用户信息到 redis
-        // 8.1 声明一个 token 作为登陆令牌
-        String token = UUID.randomUUID().toString(true);
-        // 8.2 将 User 转为 Hash 存储
+        // 8. 保存用户信息到 redis(或生成签名令牌)
         UserDTO userDTO = BeanUtil.copyProperties(user, UserDTO.class);
-//        Map<String, Object> userMap = BeanUtil.beanToMap(userDTO);
-        Map<String, Object> userMap = BeanUtil.beanToMap(userDTO, new HashMap<>(),
-                CopyOptions.create().setIgnoreNullValue(true)
-                        .setFieldValueEditor((fieldName, fieldValue) -> fieldValue != null ? fieldValue.toString() : null)); // 把DTO转为map，并在转的时候忽略空值把键变为字符串
-
-        // 8.3 保存到 redis 中
-        String tokenKey = LOGIN_USER_KEY + token;
-        stringRedisTemplate.opsForHash().putAll(tokenKey, userMap);
-        // 8.4 设置 token 的过期时间
-        stringRedisTemplate.expire(tokenKey, LOGIN_USER_TTL, TimeUnit.MINUTES);
+        String token = loginSessionManager.createSession(userDTO);
 
         // 9. 返回 token
         return Result.ok(token);
     }
 
 
+    /**
+     * 登出 删除登录态(签名令牌模式下吊销令牌)
+     * @param token 登录令牌
+     * @return
+     */
+    @Override
+    public Result logout(String token) {
+        if (StrUtil.isNotBlank(token)) {
+            loginSessionManager.removeSession(token);
+        }
+        return Result.ok();
+    }
+
+    /**
+     * 根据手机号查询用户 先查索引再按主键查询，索引中没有且用户可能存在时才按手机号查询用户表
+     * @param phone
+     * @return 用户不存在返回 null
+     */
+    private User queryByPhone(String phone) {
+        Long userId = userPhoneIndex.getUserId(phone);
+        if (userId != null) {
+            User user = getById(userId);
+            if (user != null && phone.equals(user.getPhone())) {
+                return user;
+            }
+            // 索引已失效
+            userPhoneIndex.remove(phone);
+        } else if (!userPhoneIndex.mayExist(phone)) {
+            return null;
+        }
+        User user = query().eq("phone", phone).one();
+        if (user != null) {
+            userPhoneIndex.put(phone, user.getId());
+        } else {
+            userPhoneIndex.markAbsent(phone);
+        }
+        return user;
+    }
+
     /**
      * 根据手机号创建用户并保存到用户表
      *
@@ -142,7 +208,97 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         user.setNickName(USER_NICK_NAME_PREFIX + RandomUtil.randomString(10));
 
         // 4. 保存用户
-        save(user);// 保存到数据库
+        try {
+            save(user);// 保存到数据库
+        } catch (DuplicateKeyException e) {
+            // 其他请求已经注册了该手机号(或索引与用户表不一致)，以用户表为准
+            user = query().eq("phone", phone).one();
+        }
+        // 5. 写入手机号索引
+        userPhoneIndex.put(phone, user.getId());
         return user;
     }
+
+    /**
+     * 批量查询用户信息(昵称、头像)，用于列表展示
+     * 依次查询：本地缓存 -> redis(一次 MGET) -> 数据库(一次 listByIds)，查到的结果回填到上一级缓存
+     * @param ids 用户id
+     * @return 用户id -> 用户信息，不存在的用户没有对应的 key
+     */
+    @Override
+    public Map<Long, UserDTO> queryUserProfiles(Collection<Long> ids) {
+        Map<Long, UserDTO> result = new HashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return result;
+        }
+        long now = System.currentTimeMillis();
+        // 1. 本地缓存
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            CachedProfile cached = localProfiles.get(id);
+            if (cached != null && cached.expireAt > now) {
+                if (cached.user != null) {
+                    result.put(id, cached.user);
+                }
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        // 2. redis 一次 MGET
+        List<String> keys = new ArrayList<>(missing.size());
+        for (Long id : missing) {
+            keys.add(CACHE_USER_KEY + id);
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        List<Long> dbMissing = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i++) {
+            String json = values == null ? null : values.get(i);
+            if (json == null) {
+                dbMissing.add(missing.get(i));
+            } else {
+                // 空字符串表示用户不存在
+                UserDTO user = json.isEmpty() ? null : USER_MAPPER.fromJson(json);
+                cacheProfile(missing.get(i), user, now);
+                if (user != null) {
+                    result.put(missing.get(i), user);
+                }
+            }
+        }
+        if (dbMissing.isEmpty()) {
+            return result;
+        }
+        // 3. 数据库一次 listByIds，并用 pipeline 写回 redis
+        Map<Long, UserDTO> loaded = new HashMap<>(dbMissing.size() * 2);
+        for (User user : listByIds(dbMissing)) {
+            loaded.put(user.getId(), BeanUtil.copyProperties(user, UserDTO.class));
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long id : dbMissing) {
+                UserDTO user = loaded.get(id);
+                String value = user == null ? "" : USER_MAPPER.toJson(user);
+                long ttl = user == null ? CACHE_NULL_TTL : CACHE_USER_TTL;
+                connection.set((CACHE_USER_KEY + id).getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8),
+                        Expiration.from(ttl, TimeUnit.MINUTES), RedisStringCommands.SetOption.UPSERT);
+            }
+            return null;
+        });
+        for (Long id : dbMissing) {
+            UserDTO user = loaded.get(id);
+            cacheProfile(id, user, now);
+            if (user != null) {
+                result.put(id, user);
+            }
+        }
+        return result;
+    }
+
+    private void cacheProfile(Long id, UserDTO user, long now) {
+        if (localProfiles.size() >= MAX_LOCAL_PROFILES) {
+            localProfiles.clear();
+        }
+        localProfiles.put(id, new CachedProfile(user, now + profileLocalTtlMillis));
+    }
 }
@@ -1,20 +1,33 @@
 package com.hmdp.service.impl;
 
 import com.hmdp.dto.Result;
-import com.hmdp.entity.SeckillVoucher;
 import com.hmdp.entity.VoucherOrder;
 import com.hmdp.mapper.VoucherOrderMapper;
 import com.hmdp.service.ISeckillVoucherService;
 import com.hmdp.service.IVoucherOrderService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.hmdp.utils.RedisIdWorker;
+import com.hmdp.utils.OrderDelayCancelQueue;
+import com.hmdp.utils.SeckillOrderBatcher;
+import com.hmdp.utils.SeckillVoucherRegistry;
+import com.hmdp.utils.SnowflakeIdWorker;
 import com.hmdp.utils.UserHolder;
 import org.springframework.aop.framework.AopContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Resource;
-import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_STOCK_KEY;
 
 /**
  * <p>
@@ -30,7 +43,26 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
     @Resource
     private ISeckillVoucherService seckillVoucherService;
     @Resource
-    private RedisIdWorker redisIdWorker; // 自定义的redis全局id生成器
+    private SnowflakeIdWorker snowflakeIdWorker; // 本地生成订单id，不访问redis
+    @Resource
+    private SeckillVoucherRegistry seckillVoucherRegistry; // 秒杀券元数据本地注册表
+    @Resource
+    private SeckillOrderBatcher seckillOrderBatcher; // 组提交扣减库存
+    @Resource
+    private OrderDelayCancelQueue orderDelayCancelQueue; // 未支付订单延时取消
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    private static final DefaultRedisScript<Long> ADJUST_STOCK_SCRIPT;
+    static {
+        ADJUST_STOCK_SCRIPT = new DefaultRedisScript<>();
+        ADJUST_STOCK_SCRIPT.setLocation(new ClassPathResource("adjust_stock.lua"));
+        ADJUST_STOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    // 是否使用组提交下单
+    @Value("${hmdp.seckill.group-commit:true}")
+    private boolean groupCommit;
 
     /**
      * 抢购特价券
@@ -40,28 +72,35 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
     @Override
 //    @Transactional
     public Result seckillVoucher(Long voucherId) {
-        // 1. 查询优惠券
-        SeckillVoucher voucher = seckillVoucherService.getById(voucherId);// 查询特价券
+        // 1. 从本地注册表查询秒杀券状态(由调度器在开始、结束时间切换)，不再查询数据库
+        SeckillVoucherRegistry.Status status = seckillVoucherRegistry.getStatus(voucherId);
+        if (status == SeckillVoucherRegistry.Status.NOT_FOUND) {
+            return Result.fail("秒杀券不存在");
+        }
 
         // 2. 判断秒杀是否开始
-        if (voucher.getBeginTime().isAfter(LocalDateTime.now())) {
+        if (status == SeckillVoucherRegistry.Status.NOT_STARTED) {
             // 尚未开始
             return Result.fail("秒杀尚未开始");
         }
 
         // 3. 判断秒杀是否已经结束
-        if (voucher.getEndTime().isBefore(LocalDateTime.now())) {
+        if (status == SeckillVoucherRegistry.Status.ENDED) {
             // 秒杀结束
             return Result.fail("秒杀已经结束");
         }
 
-        // 4. 判断库存是否充足
-        if (voucher.getStock() < 1) {
-            // 库存不足
+        // 4. 判断库存是否充足：本节点扣减失败过的券直接返回，其余由扣减库存时的 stock > 0 条件判断
+        if (seckillVoucherRegistry.isSoldOut(voucherId)) {
             return Result.fail("库存不足");
         }
         Long userId = UserHolder.getUser().getId();
 
+        // 组提交：几毫秒内的请求合并成一个事务扣减库存，一人一单在批次内校验
+        if (groupCommit) {
+            return seckillOrderBatcher.submit(voucherId, userId);
+        }
+
         // 8. 一人一单创建订单 返回订单id
         // 对userId加锁
         // intern() 这个方法是从常量池中拿到数据，如果我们直接使用userId.toString() 他拿到的对象实际上是不同的对象，new出来的对象，我们使用锁必须保证锁必须是同一把，所以我们需要使用intern()方法
@@ -116,6 +155,7 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
                     .update();
 
             if (!success) { // 扣减库存失败
+                seckillVoucherRegistry.markSoldOut(voucherId);
                 return Result.fail("库存不足");
             }
 
@@ -123,17 +163,84 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
             // 7. 创建订单
             VoucherOrder voucherOrder = new VoucherOrder();
             // 7.1 订单id
-            long orderId = redisIdWorker.nextId("order");
+            long orderId = snowflakeIdWorker.nextId("order");
             voucherOrder.setId(orderId);
             // 7.2 用户id
             voucherOrder.setUserId(userId);
             // 7.3 代金券id
             voucherOrder.setVoucherId(voucherId);
-            // 7.4 创建订单
-            save(voucherOrder);
+            // 7.4 创建订单，并发下单时由 (user_id, voucher_id) 唯一索引兜底一人一单，回滚已扣减的库存
+            try {
+                save(voucherOrder);
+            } catch (DuplicateKeyException e) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return Result.fail("用户已经购买过了，每个用户仅限一单");
+            }
+            // 7.5 事务提交后同步 redis 库存并添加超时取消任务
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    afterOrdersCommitted(voucherId, Collections.singletonList(orderId));
+                }
+            });
 
             // 8. 返回订单id
             return Result.ok(orderId);
 //        }
     }
+
+    /**
+     * 订单事务提交后：redis 库存同步扣减，添加未支付超时取消任务
+     * @param voucherId 优惠券id
+     * @param orderIds 新创建的订单id
+     */
+    @Override
+    public void afterOrdersCommitted(Long voucherId, List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        adjustRedisStock(voucherId, -orderIds.size());
+        orderDelayCancelQueue.add(orderIds);
+    }
+
+    /**
+     * 取消超时未支付的订单并归还库存
+     * @param orderId 订单id
+     * @return 是否取消成功(已支付或已取消的订单返回false)
+     */
+    @Override
+    @Transactional
+    public boolean cancelUnpaidOrder(Long orderId) {
+        // 1. 只取消未支付(1)的订单，条件更新保证库存只归还一次
+        boolean success = update()
+                .set("status", 4)
+                .eq("id", orderId).eq("status", 1)
+                .update();
+        if (!success) {
+            return false;
+        }
+        // 2. 归还数据库库存
+        Long voucherId = getById(orderId).getVoucherId();
+        seckillVoucherService.update()
+                .setSql("stock = stock + 1")
+                .eq("voucher_id", voucherId)
+                .update();
+        // 3. 事务提交后归还 redis 库存
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                adjustRedisStock(voucherId, 1);
+                seckillVoucherRegistry.clearSoldOut(voucherId);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 调整 redis 中的库存，只在库存 key 存在时生效(没有发布到 redis 的券不处理)
+     */
+    private void adjustRedisStock(Long voucherId, long delta) {
+        stringRedisTemplate.execute(ADJUST_STOCK_SCRIPT,
+                Collections.singletonList(SECKILL_STOCK_KEY + voucherId), String.valueOf(delta));
+    }
 }
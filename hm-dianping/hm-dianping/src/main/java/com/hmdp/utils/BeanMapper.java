@@ -0,0 +1,341 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 22:20
+ * @description 基于 MethodHandle 的 bean 与 map / json 互转
+ * 每个类第一次使用时解析一次属性(getter/setter)并缓存 MethodHandle 和类型转换器，之后的转换不再经过反射，
+ * 用于登录态 hash(UserDTO)、缓存 json(Shop、Blog、ShopType、RedisData 等)这些每个请求都会执行的路径。
+ * json 格式与 hutool JSONUtil 一致(忽略 null，LocalDateTime 写为毫秒时间戳)，两边写入的数据可以互相读取
+ */
+public final class BeanMapper<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<BeanMapper<?>> MAPPERS = new ClassValue<BeanMapper<?>>() {
+        @Override
+        protected BeanMapper<?> computeValue(Class<?> type) {
+            return new BeanMapper<>(type);
+        }
+    };
+
+    private static final ClassValue<Boolean> IS_BEAN = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (type.isPrimitive() || type.isArray() || type.isEnum() || type.isInterface()
+                    || type.getName().startsWith("java.")
+                    || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)) {
+                return false;
+            }
+            try {
+                return Modifier.isPublic(type.getConstructor().getModifiers());
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    private static class Property {
+        private final String name;
+        private final Class<?> type;
+        // (Object)Object
+        private final MethodHandle getter;
+        // (Object, Object)void
+        private final MethodHandle setter;
+        // 字符串转为属性类型
+        private final Function<String, Object> parser;
+
+        Property(String name, Class<?> type, MethodHandle getter, MethodHandle setter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+            this.parser = parserFor(type);
+        }
+    }
+
+    private final Class<T> type;
+    // ()Object
+    private final MethodHandle constructor;
+    private final Property[] properties;
+
+    @SuppressWarnings("unchecked")
+    public static <T> BeanMapper<T> of(Class<T> type) {
+        return (BeanMapper<T>) MAPPERS.get(type);
+    }
+
+    /**
+     * 是否可以用 BeanMapper 转换(有公共无参构造的非 JDK 类)
+     */
+    public static boolean isBean(Class<?> type) {
+        return IS_BEAN.get(type);
+    }
+
+    private BeanMapper(Class<T> type) {
+        if (!isBean(type)) {
+            throw new IllegalArgumentException("不支持的类型: " + type.getName());
+        }
+        this.type = type;
+        try {
+            Constructor<T> ctor = type.getConstructor();
+            this.constructor = LOOKUP.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+            List<Property> list = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int mod = field.getModifiers();
+                    if (Modifier.isStatic(mod) || Modifier.isTransient(mod)) {
+                        continue;
+                    }
+                    Method getter = findGetter(type, field);
+                    Method setter = findSetter(type, field);
+                    if (getter == null || setter == null) {
+                        continue;
+                    }
+                    list.add(new Property(field.getName(), field.getType(),
+                            LOOKUP.unreflect(getter).asType(MethodType.methodType(Object.class, Object.class)),
+                            LOOKUP.unreflect(setter).asType(MethodType.methodType(void.class, Object.class, Object.class))));
+                }
+            }
+            this.properties = list.toArray(new Property[0]);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("解析类型失败: " + type.getName(), e);
+        }
+    }
+
+    /**
+     * 创建对象
+     */
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("创建对象失败: " + type.getName(), e);
+        }
+    }
+
+    /**
+     * bean 转为 map，忽略 null，值都转为字符串(用于写入 redis hash)
+     */
+    public Map<String, Object> toMap(T bean) {
+        Map<String, Object> map = new HashMap<>(properties.length * 2);
+        for (Property p : properties) {
+            Object value = get(p, bean);
+            if (value != null) {
+                map.put(p.name, value.toString());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * map 转为 bean，值为字符串时按属性类型转换，map 中没有的属性保持默认值
+     */
+    public T fromMap(Map<?, ?> map) {
+        T bean = newInstance();
+        for (Property p : properties) {
+            Object value = map.get(p.name);
+            if (value != null) {
+                set(p, bean, convert(p, value));
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * bean 转为 json
+     */
+    public String toJson(T bean) {
+        StringBuilder sb = new StringBuilder(32 + properties.length * 24);
+        writeJson(bean, sb);
+        return sb.toString();
+    }
+
+    /**
+     * json 转为 bean
+     */
+    public T fromJson(String json) {
+        Object value = SimpleJson.parse(json);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("不是 json 对象: " + StrUtil.brief(json, 64));
+        }
+        return fromMap((Map<?, ?>) value);
+    }
+
+    /**
+     * json 数组转为 list
+     */
+    public List<T> fromJsonArray(String json) {
+        Object value = SimpleJson.parse(json);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("不是 json 数组: " + StrUtil.brief(json, 64));
+        }
+        List<?> items = (List<?>) value;
+        List<T> list = new ArrayList<>(items.size());
+        for (Object item : items) {
+            list.add(item == null ? null : fromMap((Map<?, ?>) item));
+        }
+        return list;
+    }
+
+    private void writeJson(Object bean, StringBuilder sb) {
+        sb.append('{');
+        boolean first = true;
+        for (Property p : properties) {
+            Object value = get(p, bean);
+            if (value == null) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            SimpleJson.writeString(sb, p.name);
+            sb.append(':');
+            writeValue(value, sb);
+        }
+        sb.append('}');
+    }
+
+    // ---------------------- 静态工具方法 ----------------------
+
+    /**
+     * 任意对象转为 json，bean 使用 BeanMapper，其他类型交给 hutool
+     */
+    @SuppressWarnings("unchecked")
+    public static String toJsonStr(Object value) {
+        if (value != null && isBean(value.getClass())) {
+            return of((Class<Object>) value.getClass()).toJson(value);
+        }
+        return JSONUtil.toJsonStr(value);
+    }
+
+    /**
+     * json 转为指定类型，bean 使用 BeanMapper，其他类型交给 hutool
+     */
+    public static <R> R toBean(String json, Class<R> type) {
+        if (isBean(type)) {
+            return of(type).fromJson(json);
+        }
+        return JSONUtil.toBean(json, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(Object value, StringBuilder sb) {
+        if (value instanceof String) {
+            SimpleJson.writeString(sb, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof LocalDateTime) {
+            sb.append(((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        } else if (isBean(value.getClass())) {
+            of((Class<Object>) value.getClass()).writeJson(value, sb);
+        } else {
+            sb.append(JSONUtil.toJsonStr(value));
+        }
+    }
+
+    private static Object convert(Property p, Object value) {
+        if (value instanceof String) {
+            return p.parser.apply((String) value);
+        }
+        if (p.type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Map && isBean(p.type)) {
+            return of(p.type).fromMap((Map<?, ?>) value);
+        }
+        return Convert.convert(p.type, value);
+    }
+
+    private static Object get(Property p, Object bean) {
+        try {
+            return (Object) p.getter.invokeExact(bean);
+        } catch (Throwable e) {
+            throw new IllegalStateException("读取属性失败: " + p.name, e);
+        }
+    }
+
+    private static void set(Property p, Object bean, Object value) {
+        try {
+            p.setter.invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException("设置属性失败: " + p.name, e);
+        }
+    }
+
+    /**
+     * 常用类型直接解析，格式不对或其他类型交给 hutool Convert
+     */
+    private static Function<String, Object> parserFor(Class<?> type) {
+        Function<String, Object> fast;
+        if (type == String.class || type == Object.class) {
+            return s -> s;
+        } else if (type == Long.class || type == long.class) {
+            fast = Long::valueOf;
+        } else if (type == Integer.class || type == int.class) {
+            fast = Integer::valueOf;
+        } else if (type == Double.class || type == double.class) {
+            fast = Double::valueOf;
+        } else if (type == Boolean.class || type == boolean.class) {
+            fast = Boolean::valueOf;
+        } else if (type == BigDecimal.class) {
+            fast = BigDecimal::new;
+        } else if (type == LocalDateTime.class) {
+            // hutool 把 LocalDateTime 写为毫秒时间戳
+            fast = s -> LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(s)), ZoneId.systemDefault());
+        } else {
+            return s -> Convert.convert(type, s);
+        }
+        return s -> {
+            try {
+                return fast.apply(s);
+            } catch (RuntimeException e) {
+                return Convert.convert(type, s);
+            }
+        };
+    }
+
+    private static Method findGetter(Class<?> type, Field field) {
+        String name = StrUtil.upperFirst(field.getName());
+        try {
+            return type.getMethod("get" + name);
+        } catch (NoSuchMethodException e) {
+            if (field.getType() == boolean.class) {
+                try {
+                    return type.getMethod("is" + name);
+                } catch (NoSuchMethodException ignored) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static Method findSetter(Class<?> type, Field field) {
+        try {
+            // lombok @Accessors(chain = true) 的 setter 返回 this，同样可以使用
+            return type.getMethod("set" + StrUtil.upperFirst(field.getName()), field.getType());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
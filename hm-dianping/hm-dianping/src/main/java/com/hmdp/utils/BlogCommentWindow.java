@@ -0,0 +1,131 @@
+package com.hmdp.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 03:40
+ * @description 博文最新评论窗口
+ * 每篇博文在 redis list(blog:comments:{博文id}) 中保存最新的 N 条评论(json，新的在前)，
+ * 窗口中始终是从最新一条开始连续的评论；末尾是结束标记时表示数据库中没有更早的评论，结束标记不占 N 的名额。
+ * 发表评论时直接放进窗口(post_comment.lua)，窗口不够一页时由查询方从数据库补齐并接到末尾(append_comments.lua)，
+ * 热门博文的第一页评论只读 redis；只有写入窗口时才刷新有效期，放进窗口失败时删除窗口，下次查询从数据库重建
+ */
+@Component
+public class BlogCommentWindow {
+
+    private static final DefaultRedisScript<Long> POST_COMMENT_SCRIPT;
+    private static final DefaultRedisScript<Long> APPEND_COMMENTS_SCRIPT;
+    static {
+        POST_COMMENT_SCRIPT = new DefaultRedisScript<>();
+        POST_COMMENT_SCRIPT.setLocation(new ClassPathResource("post_comment.lua"));
+        POST_COMMENT_SCRIPT.setResultType(Long.class);
+        APPEND_COMMENTS_SCRIPT = new DefaultRedisScript<>();
+        APPEND_COMMENTS_SCRIPT.setLocation(new ClassPathResource("append_comments.lua"));
+        APPEND_COMMENTS_SCRIPT.setResultType(Long.class);
+    }
+
+    // 结束标记，评论 json 不可能为空串
+    private static final String END = "";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // 窗口保留的评论数
+    @Value("${hmdp.blog.comments.window-size:50}")
+    private int windowSize;
+    // 窗口有效期(分钟)，写入窗口时刷新，查询不刷新
+    @Value("${hmdp.blog.comments.window-ttl-minutes:60}")
+    private long windowTtlMinutes;
+
+    /**
+     * 查询到的窗口
+     */
+    public static class Window {
+        // 评论 json，不含结束标记
+        private final List<String> comments;
+        // 数据库中是否已经没有更早的评论
+        private final boolean complete;
+        // 窗口是否存在，以及查询时的最后一个元素，追加时用来判断窗口是否被修改
+        private final boolean exists;
+        private final String tail;
+
+        Window(List<String> items) {
+            this.exists = !items.isEmpty();
+            this.tail = exists ? items.get(items.size() - 1) : null;
+            this.complete = exists && END.equals(tail);
+            this.comments = complete ? items.subList(0, items.size() - 1) : items;
+        }
+
+        public List<String> getComments() {
+            return comments;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    public BlogCommentWindow(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * 新评论放进窗口，并累加待写回数据库的评论数
+     */
+    public void push(Long blogId, String commentJson) {
+        stringRedisTemplate.execute(POST_COMMENT_SCRIPT, Arrays.asList(BLOG_COMMENTS_KEY + blogId, BLOG_COMMENTS_DELTA_KEY),
+                commentJson, String.valueOf(windowSize), String.valueOf(TimeUnit.MINUTES.toSeconds(windowTtlMinutes)),
+                blogId.toString());
+    }
+
+    /**
+     * 删除窗口，下次查询时从数据库重建
+     */
+    public void evict(Long blogId) {
+        stringRedisTemplate.delete(BLOG_COMMENTS_KEY + blogId);
+    }
+
+    /**
+     * 查询窗口，不刷新有效期：窗口出错时最多保留到有效期结束
+     */
+    public Window read(Long blogId) {
+        List<String> items = stringRedisTemplate.opsForList().range(BLOG_COMMENTS_KEY + blogId, 0, -1);
+        return new Window(items == null ? Collections.emptyList() : items);
+    }
+
+    /**
+     * 把从数据库查到的更早的评论接到窗口末尾，窗口在查询后被修改过时放弃(下次查询再补)
+     * @param window 查询到的窗口
+     * @param older 比窗口中最早一条更早的评论 json，按时间倒序
+     * @param complete 数据库中是否已经没有更早的评论
+     */
+    public void append(Long blogId, Window window, List<String> older, boolean complete) {
+        List<String> args = new ArrayList<>(older.size() + 5);
+        args.add(window.exists ? "1" : "0");
+        args.add(window.exists ? window.tail : "");
+        args.add(String.valueOf(windowSize));
+        args.add(String.valueOf(TimeUnit.MINUTES.toSeconds(windowTtlMinutes)));
+        args.addAll(older.subList(0, Math.min(older.size(), windowSize)));
+        if (complete && older.size() <= windowSize) {
+            args.add(END);
+        }
+        stringRedisTemplate.execute(APPEND_COMMENTS_SCRIPT, Collections.singletonList(BLOG_COMMENTS_KEY + blogId),
+                args.toArray());
+    }
+}
@@ -0,0 +1,171 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.hmdp.service.IBlogService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 00:20
+ * @description 点赞数、评论数写回数据库
+ * 点赞、评论时只在 redis 中累加增量(blog:liked:delta、blog:comments:delta，field：博文id，value：增量)，
+ * 定时把增量 hash 改名为 xxx:flushing(改名是原子的，之后的增量写入新的 hash)，
+ * 再按批用一条 UPDATE ... CASE 写回数据库，热门博文的点赞、评论不再每次都去抢同一行的行锁。
+ * 上次写回失败时先处理遗留的 flushing；多节点通过锁保证同一时刻只有一个节点写回，
+ * 锁的值是本次写回的标识，每批写回前续期，锁已经不属于自己时停止写回，释放时只删除自己的锁
+ */
+@Slf4j
+@Component
+public class BlogCounterFlusher {
+
+    // 每条 UPDATE 语句更新的博文数
+    private static final int FLUSH_BATCH_SIZE = 500;
+    // 写回锁的过期时间(秒)
+    private static final long FLUSH_LOCK_TTL = 60L;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+    private static final DefaultRedisScript<Long> RENEW_LOCK_SCRIPT;
+    static {
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unlock.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+        RENEW_LOCK_SCRIPT = new DefaultRedisScript<>();
+        RENEW_LOCK_SCRIPT.setLocation(new ClassPathResource("renew_lock.lua"));
+        RENEW_LOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private IBlogService blogService;
+
+    // 写回间隔(毫秒)
+    @Value("${hmdp.blog.counter-flush-interval-millis:${hmdp.blog.like-flush-interval-millis:1000}}")
+    private long flushIntervalMillis;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "blog-counter-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BlogCounterFlusher(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 不中断正在执行的写回，等它结束后再写回最后一次
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(FLUSH_LOCK_TTL, TimeUnit.SECONDS)) {
+                log.warn("等待博文计数写回结束超时");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        flush();
+    }
+
+    /**
+     * 把点赞数、评论数增量写回数据库
+     */
+    public void flush() {
+        try {
+            String token = IdUtil.fastSimpleUUID();
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_BLOG_COUNTER_FLUSH_KEY, token, FLUSH_LOCK_TTL, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+            try {
+                if (flush(BLOG_LIKED_DELTA_KEY, BLOG_LIKED_DELTA_FLUSHING_KEY, "liked", token)) {
+                    flush(BLOG_COMMENTS_DELTA_KEY, BLOG_COMMENTS_DELTA_FLUSHING_KEY, "comments", token);
+                }
+            } finally {
+                stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_BLOG_COUNTER_FLUSH_KEY), token);
+            }
+        } catch (Exception e) {
+            log.error("博文计数写回数据库失败", e);
+        }
+    }
+
+    /**
+     * @return 是否写完，锁已经不属于本次写回时返回 false
+     */
+    private boolean flush(String deltaKey, String flushingKey, String column, String token) {
+        // 1. 上次没写完的先写完，否则把当前的增量改名后写回
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(flushingKey))) {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(deltaKey))) {
+                return true;
+            }
+            stringRedisTemplate.rename(deltaKey, flushingKey);
+        }
+        Map<Object, Object> deltas = stringRedisTemplate.opsForHash().entries(flushingKey);
+        // 2. 分批写回，每批写完删除对应的 field，失败时只会重放未删除的部分
+        List<Map.Entry<Object, Object>> entries = new ArrayList<>(deltas.entrySet());
+        for (int from = 0; from < entries.size(); from += FLUSH_BATCH_SIZE) {
+            // 锁过期后其他节点可能已经在写回同一个 flushing，不能再重复累加
+            if (!renewLock(token)) {
+                log.warn("博文计数写回锁已失效，停止写回");
+                return false;
+            }
+            List<Map.Entry<Object, Object>> batch = entries.subList(from, Math.min(from + FLUSH_BATCH_SIZE, entries.size()));
+            updateCounter(column, batch);
+            stringRedisTemplate.opsForHash().delete(flushingKey, batch.stream().map(Map.Entry::getKey).toArray());
+        }
+        stringRedisTemplate.delete(flushingKey);
+        return true;
+    }
+
+    private boolean renewLock(String token) {
+        Long renewed = stringRedisTemplate.execute(RENEW_LOCK_SCRIPT, Collections.singletonList(LOCK_BLOG_COUNTER_FLUSH_KEY),
+                token, String.valueOf(FLUSH_LOCK_TTL));
+        return renewed != null && renewed == 1;
+    }
+
+    /**
+     * UPDATE tb_blog SET liked = COALESCE(liked, 0) + CASE id WHEN 1 THEN 3 WHEN 2 THEN -1 ELSE 0 END WHERE id IN (1, 2)
+     */
+    private void updateCounter(String column, List<Map.Entry<Object, Object>> batch) {
+        StringBuilder sql = new StringBuilder(column).append(" = COALESCE(").append(column).append(", 0) + CASE id");
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (Map.Entry<Object, Object> entry : batch) {
+            // 都是 lua 脚本写入的数字，解析后再拼接
+            long id = Long.parseLong(entry.getKey().toString());
+            long delta = Long.parseLong(entry.getValue().toString());
+            if (delta == 0) {
+                continue;
+            }
+            ids.add(id);
+            sql.append(" WHEN ").append(id).append(" THEN ").append(delta);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        sql.append(" ELSE 0 END");
+        blogService.update().setSql(sql.toString()).in("id", ids).update();
+    }
+}
@@ -2,14 +2,13 @@ package com.hmdp.utils;
 
 import cn.hutool.core.util.BooleanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
 import com.hmdp.entity.Shop;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -40,7 +39,7 @@ public class CacheClient {
      * @param unit
      */
     public void set(String key, Object value, Long time, TimeUnit unit) {
-        stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(value), time, unit);
+        stringRedisTemplate.opsForValue().set(key, BeanMapper.toJsonStr(value), time, unit);
     }
 
     /**
@@ -57,7 +56,7 @@ public class CacheClient {
         redisData.setData(value);
         redisData.setExpireTime(LocalDateTime.now().plusSeconds(unit.toSeconds(time)));
         // 写入redis
-        stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(redisData));
+        stringRedisTemplate.opsForValue().set(key, BeanMapper.toJsonStr(redisData));
     }
 
     /**
@@ -82,7 +81,7 @@ public class CacheClient {
         // 2. 判断是否存在
         if (StrUtil.isNotBlank(json)) { // 不为空
             // 3. 存在，直接返回
-            return JSONUtil.toBean(json, type);
+            return BeanMapper.toBean(json, type);
         }
 
         // 判断缓存命中的是否是空值 如果是空值则是之前写入的数据，证明是缓存穿透数据
@@ -108,6 +107,69 @@ public class CacheClient {
     }
 
 
+    /**
+     * 根据id查询
+     * 互斥锁解决缓存击穿 且 缓存空对象解决缓存穿透
+     * 缓存未命中时只有拿到锁的线程查询数据库重建缓存，其他线程休眠后重试
+     * 锁 key 为 lock: + 缓存 key，不同前缀的缓存不会共用一把锁
+     * @param keyPrefix key的前缀
+     * @param id 需要查询的某个东西的id
+     * @param type 查询的那个东西的类
+     * @param dbFallback 查询逻辑 函数式
+     * @param time 过期时间
+     * @param unit 过期时间单位
+     * @return 要查的东西
+     * @param <R> 查询的东西的类型
+     * @param <ID> id的类型
+     */
+    public <R, ID> R queryWithMutex(
+            String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        String key = keyPrefix + id;
+        String lockKey = LOCK_CACHE_KEY + key;
+        while (true) {
+            // 1. 从 redis 查询缓存
+            String json = stringRedisTemplate.opsForValue().get(key);
+            // 2. 命中直接返回，命中空值说明是缓存穿透数据
+            if (StrUtil.isNotBlank(json)) {
+                return BeanMapper.toBean(json, type);
+            }
+            if (json != null) {
+                return null;
+            }
+
+            // 3. 获取互斥锁，失败则休眠并重试
+            if (!tryLock(lockKey)) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                continue;
+            }
+            try {
+                // 4. 拿到锁后再查一次，其他线程可能刚重建完缓存
+                json = stringRedisTemplate.opsForValue().get(key);
+                if (StrUtil.isNotBlank(json)) {
+                    return BeanMapper.toBean(json, type);
+                }
+                // 5. 查询数据库，不存在则缓存空值
+                R r = dbFallback.apply(id);
+                if (r == null) {
+                    stringRedisTemplate.opsForValue().set(key, "", CACHE_NULL_TTL, TimeUnit.MINUTES);
+                    return null;
+                }
+                // 6. 存在 将结果写入 redis
+                this.set(key, r, time, unit);
+                return r;
+            } finally {
+                // 7. 释放互斥锁
+                unlock(lockKey);
+            }
+        }
+    }
+
+
     // 线程池
     private static final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
 
@@ -137,9 +199,8 @@ public class CacheClient {
         }
 
         // 4. 命中，需要先把json反序列化为对象
-        RedisData redisData = JSONUtil.toBean(shopJson, RedisData.class);
-        JSONObject jsonObject = (JSONObject)redisData.getData();
-        R r = JSONUtil.toBean(jsonObject, type);
+        RedisData redisData = BeanMapper.of(RedisData.class).fromJson(shopJson);
+        R r = BeanMapper.of(type).fromMap((Map<?, ?>) redisData.getData());
         // 过期时间
         LocalDateTime expireTime = redisData.getExpireTime();
 
@@ -0,0 +1,86 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.util.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 23:20
+ * @description 一致性哈希环
+ * 每个节点在环上放置多个虚拟节点，key 顺时针找到的第一个虚拟节点即为所属节点；
+ * 增加一个节点时只有约 1/节点数 的 key 会迁移到新节点，其他 key 的归属不变
+ * 增删节点时复制一份新的环再替换，查询不加锁
+ */
+public class ConsistentHashRouter<T> {
+
+    private final int virtualNodes;
+    private volatile TreeMap<Long, T> ring = new TreeMap<>();
+    private volatile Map<String, T> nodes = new LinkedHashMap<>();
+
+    /**
+     * @param virtualNodes 每个节点的虚拟节点数，越多分布越均匀
+     */
+    public ConsistentHashRouter(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("虚拟节点数必须大于 0");
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * 添加节点
+     * @param name 节点名称，决定虚拟节点在环上的位置，同一个节点在各个实例上必须一致
+     * @param node 节点
+     */
+    public synchronized void addNode(String name, T node) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("节点已存在: " + name);
+        }
+        TreeMap<Long, T> newRing = new TreeMap<>(ring);
+        for (int i = 0; i < virtualNodes; i++) {
+            // 哈希冲突时保留先加入的节点
+            newRing.putIfAbsent(MurmurHash.hash64(name + "#" + i), node);
+        }
+        Map<String, T> newNodes = new LinkedHashMap<>(nodes);
+        newNodes.put(name, node);
+        nodes = newNodes;
+        ring = newRing;
+    }
+
+    /**
+     * 移除节点，原来属于该节点的 key 分散到其他节点
+     */
+    public synchronized T removeNode(String name) {
+        if (!nodes.containsKey(name)) {
+            return null;
+        }
+        Map<String, T> newNodes = new LinkedHashMap<>(nodes);
+        T node = newNodes.remove(name);
+        TreeMap<Long, T> newRing = new TreeMap<>(ring);
+        newRing.values().removeIf(n -> n == node);
+        ring = newRing;
+        nodes = newNodes;
+        return node;
+    }
+
+    /**
+     * key 所属的节点
+     */
+    public T route(String key) {
+        TreeMap<Long, T> ring = this.ring;
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("没有可用的节点");
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(MurmurHash.hash64(key));
+        if (entry == null) {
+            // 超过环上最大的位置，回到起点
+            entry = ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    public Collection<T> nodes() {
+        return new ArrayList<>(nodes.values());
+    }
+}
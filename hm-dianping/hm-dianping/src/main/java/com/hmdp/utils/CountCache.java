@@ -0,0 +1,54 @@
+package com.hmdp.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.hmdp.utils.RedisConstants.CACHE_COUNT_KEY;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 03:15
+ * @description 分页总数缓存
+ * 按查询条件缓存 COUNT 结果(cache:count:{条件})，有效期很短，只给确实需要展示总数的页面使用；
+ * 数据变化时可以主动删除，否则过期后重新统计
+ */
+@Component
+public class CountCache {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // 总数的缓存时间(秒)
+    @Value("${hmdp.page.count-ttl-seconds:60}")
+    private long countTtlSeconds;
+
+    public CountCache(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 查询总数，缓存未命中时统计并缓存
+     * @param filter 查询条件，如 blog:user:1
+     * @param counter 统计总数
+     */
+    public long get(String filter, Supplier<Long> counter) {
+        String key = CACHE_COUNT_KEY + filter;
+        String value = stringRedisTemplate.opsForValue().get(key);
+        if (value != null) {
+            return Long.parseLong(value);
+        }
+        long count = counter.get();
+        stringRedisTemplate.opsForValue().set(key, Long.toString(count), countTtlSeconds, TimeUnit.SECONDS);
+        return count;
+    }
+
+    /**
+     * 数据变化后删除总数
+     */
+    public void evict(String filter) {
+        stringRedisTemplate.delete(CACHE_COUNT_KEY + filter);
+    }
+}
@@ -0,0 +1,155 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.Follow;
+import com.hmdp.mapper.FollowMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 01:40
+ * @description 博文推送到粉丝收件箱(推模式)
+ * 发布博文后只把推送任务放进本地有界队列，请求线程不等待推送；
+ * 后台线程按主键分页(id > 上一页最后的 id)查询作者的粉丝，每页一次 pipeline 写入各粉丝的 feed:{粉丝id}
+ * (member：博文id，score：发布时间)，同时裁剪收件箱只保留最新的 N 条；
+ * 推送线程都忙且队列满时由发布博文的线程自己推送
+ * 粉丝数达到阈值的作者(大V，记录在 feed:big)不再推送，只写自己的发件箱 feed:outbox:{作者id}，
+ * 由粉丝读取时合并(拉模式，见 FeedReader)；作者成为大V后不再变回推模式
+ */
+@Slf4j
+@Component
+public class FeedPusher {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private FollowMapper followMapper;
+
+    // 每个收件箱保留的博文数
+    @Value("${hmdp.feed.inbox-size:1000}")
+    private long inboxSize;
+    // 每次查询并推送的粉丝数
+    @Value("${hmdp.feed.push-batch-size:1000}")
+    private int pushBatchSize;
+    // 待推送队列的容量
+    @Value("${hmdp.feed.queue-capacity:10000}")
+    private int queueCapacity;
+    // 推送线程数
+    @Value("${hmdp.feed.push-threads:2}")
+    private int pushThreads;
+    // 粉丝数达到该值的作者改为拉模式
+    @Value("${hmdp.feed.big-author-followers:5000}")
+    private long bigAuthorFollowers;
+
+    private ExecutorService pushExecutor;
+
+    public FeedPusher(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        pushExecutor = new ThreadPoolExecutor(pushThreads, pushThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "feed-pusher");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pushExecutor.shutdown();
+    }
+
+    /**
+     * 异步推送新博文到作者所有粉丝的收件箱
+     * @param authorId 作者id
+     * @param blogId 博文id
+     * @param timestamp 发布时间(毫秒)，收件箱按它倒序排列
+     */
+    public void publish(Long authorId, Long blogId, long timestamp) {
+        pushExecutor.execute(() -> {
+            try {
+                push(authorId, blogId, timestamp);
+            } catch (Exception e) {
+                log.error("推送博文 {} 到粉丝收件箱失败", blogId, e);
+            }
+        });
+    }
+
+    /**
+     * 推送到作者所有粉丝的收件箱，大V只写发件箱
+     * @return 推送的粉丝数
+     */
+    public long push(Long authorId, Long blogId, long timestamp) {
+        byte[] member = blogId.toString().getBytes(StandardCharsets.UTF_8);
+        if (isBigAuthor(authorId)) {
+            byte[] key = (FEED_OUTBOX_KEY + authorId).getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.zAdd(key, timestamp, member);
+                connection.zRemRange(key, 0, -inboxSize - 1);
+                return null;
+            });
+            return 0;
+        }
+        long lastId = 0L;
+        long total = 0;
+        while (true) {
+            List<Follow> follows = followMapper.selectList(new QueryWrapper<Follow>()
+                    .select("id", "user_id")
+                    .eq("follow_user_id", authorId)
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + pushBatchSize));
+            if (follows.isEmpty()) {
+                break;
+            }
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Follow follow : follows) {
+                    byte[] key = (FEED_KEY + follow.getUserId()).getBytes(StandardCharsets.UTF_8);
+                    connection.zAdd(key, timestamp, member);
+                    // 只保留最新的 inboxSize 条
+                    connection.zRemRange(key, 0, -inboxSize - 1);
+                }
+                return null;
+            });
+            lastId = follows.get(follows.size() - 1).getId();
+            total += follows.size();
+            if (follows.size() < pushBatchSize) {
+                break;
+            }
+        }
+        log.debug("博文 {} 推送给 {} 个粉丝", blogId, total);
+        return total;
+    }
+
+    /**
+     * 是否大V，粉丝数第一次达到阈值时加入 feed:big
+     */
+    private boolean isBigAuthor(Long authorId) {
+        if (Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(FEED_BIG_AUTHOR_KEY, authorId.toString()))) {
+            return true;
+        }
+        Integer followers = followMapper.selectCount(new QueryWrapper<Follow>().eq("follow_user_id", authorId));
+        if (followers == null || followers < bigAuthorFollowers) {
+            return false;
+        }
+        stringRedisTemplate.opsForSet().add(FEED_BIG_AUTHOR_KEY, authorId.toString());
+        log.info("作者 {} 粉丝数 {}，改为拉模式", authorId, followers);
+        return true;
+    }
+}
@@ -0,0 +1,177 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.Follow;
+import com.hmdp.mapper.FollowMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 02:10
+ * @description 读取关注的人发布的博文(推拉结合)
+ * 普通作者的博文已经推送到收件箱 feed:{用户id}；关注的大V的博文在各自的发件箱 feed:outbox:{作者id}，
+ * 关注的大V由 follows:{用户id} 与 feed:big 求交集得到(关注关系回填完成前查询 tb_follow)，
+ * 读取时一次 pipeline 从收件箱和这些发件箱各取最多 offset + count 条，再用大小为来源数的堆多路归并；
+ * 排序与 ZREVRANGEBYSCORE 一致(时间戳倒序，相同时按博文id字典序倒序)，同一篇博文只保留一次，
+ * 因此与只读收件箱时一样使用 最小时间戳 + offset 的滚动分页
+ */
+@Component
+public class FeedReader {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private FollowMapper followMapper;
+
+    @Resource
+    private FollowGraph followGraph;
+
+    // 本地缓存大V列表的时间(毫秒)
+    @Value("${hmdp.feed.big-author-local-ttl-millis:5000}")
+    private long bigAuthorLocalTtlMillis;
+
+    private volatile Set<String> bigAuthors = Collections.emptySet();
+    private volatile long bigAuthorsExpireAt;
+
+    // 归并时每个来源的读取位置
+    private static class Source {
+        private final List<ZSetOperations.TypedTuple<String>> tuples;
+        private int index;
+
+        Source(List<ZSetOperations.TypedTuple<String>> tuples) {
+            this.tuples = tuples;
+        }
+
+        ZSetOperations.TypedTuple<String> head() {
+            return tuples.get(index);
+        }
+    }
+
+    // 时间戳倒序，相同时按博文id字典序倒序
+    static final Comparator<ZSetOperations.TypedTuple<String>> ORDER =
+            Comparator.<ZSetOperations.TypedTuple<String>>comparingDouble(ZSetOperations.TypedTuple::getScore)
+                    .thenComparing(ZSetOperations.TypedTuple::getValue)
+                    .reversed();
+
+    public FeedReader(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 按时间倒序读取
+     * @param userId 用户id
+     * @param max 最大时间戳(包含)
+     * @param offset 跳过时间戳等于 max 的条数
+     * @param count 最多返回的条数
+     * @return member：博文id，score：发布时间
+     */
+    public List<ZSetOperations.TypedTuple<String>> read(Long userId, long max, int offset, int count) {
+        List<String> outboxes = followedBigAuthors(userId).stream()
+                .map(authorId -> FEED_OUTBOX_KEY + authorId)
+                .collect(Collectors.toList());
+        if (outboxes.isEmpty()) {
+            // 没有关注大V，直接分页查询收件箱
+            Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                    .reverseRangeByScoreWithScores(FEED_KEY + userId, 0, max, offset, count);
+            return tuples == null ? Collections.emptyList() : new ArrayList<>(tuples);
+        }
+        // 1. 从收件箱和各发件箱取前 offset + count 条
+        List<String> keys = new ArrayList<>(outboxes.size() + 1);
+        keys.add(FEED_KEY + userId);
+        keys.addAll(outboxes);
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.zRevRangeByScoreWithScores(key.getBytes(StandardCharsets.UTF_8), 0, max, 0, offset + count);
+            }
+            return null;
+        });
+        // 2. 多路归并
+        List<List<ZSetOperations.TypedTuple<String>>> sources = new ArrayList<>(replies.size());
+        for (Object reply : replies) {
+            @SuppressWarnings("unchecked")
+            Set<ZSetOperations.TypedTuple<String>> tuples = (Set<ZSetOperations.TypedTuple<String>>) reply;
+            if (tuples != null && !tuples.isEmpty()) {
+                sources.add(new ArrayList<>(tuples));
+            }
+        }
+        return merge(sources, offset, count);
+    }
+
+    /**
+     * 多路归并，堆中每个来源只放当前最大的一条；同一篇博文只保留一次，去重后跳过 offset 条
+     * @param sources 各来源的博文，每个来源已按 ORDER 排好序
+     */
+    static List<ZSetOperations.TypedTuple<String>> merge(List<List<ZSetOperations.TypedTuple<String>>> sources,
+                                                        int offset, int count) {
+        PriorityQueue<Source> heap = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> ORDER.compare(a.head(), b.head()));
+        for (List<ZSetOperations.TypedTuple<String>> tuples : sources) {
+            if (!tuples.isEmpty()) {
+                heap.add(new Source(tuples));
+            }
+        }
+        List<ZSetOperations.TypedTuple<String>> result = new ArrayList<>(count);
+        Set<String> seen = new HashSet<>();
+        int skipped = 0;
+        while (!heap.isEmpty() && result.size() < count) {
+            Source source = heap.poll();
+            ZSetOperations.TypedTuple<String> tuple = source.head();
+            if (++source.index < source.tuples.size()) {
+                heap.add(source);
+            }
+            // 大V成为大V之前推送的博文可能同时在收件箱和发件箱中
+            if (!seen.add(tuple.getValue())) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            result.add(tuple);
+        }
+        return result;
+    }
+
+    /**
+     * 用户关注的大V
+     */
+    private List<Long> followedBigAuthors(Long userId) {
+        Set<String> bigAuthors = bigAuthors();
+        if (bigAuthors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 关注关系已在 redis 中时直接求交集
+        Set<Long> followed = followGraph.followsIn(userId, FEED_BIG_AUTHOR_KEY);
+        if (followed != null) {
+            return new ArrayList<>(followed);
+        }
+        return followMapper.selectList(new QueryWrapper<Follow>()
+                        .select("follow_user_id")
+                        .eq("user_id", userId)
+                        .in("follow_user_id", bigAuthors))
+                .stream()
+                .map(Follow::getFollowUserId)
+                .collect(Collectors.toList());
+    }
+
+    private Set<String> bigAuthors() {
+        long now = System.currentTimeMillis();
+        if (now < bigAuthorsExpireAt) {
+            return bigAuthors;
+        }
+        Set<String> members = stringRedisTemplate.opsForSet().members(FEED_BIG_AUTHOR_KEY);
+        bigAuthors = members == null ? Collections.emptySet() : members;
+        bigAuthorsExpireAt = now + bigAuthorLocalTtlMillis;
+        return bigAuthors;
+    }
+}
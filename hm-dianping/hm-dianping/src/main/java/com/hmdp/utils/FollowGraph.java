@@ -0,0 +1,273 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.Follow;
+import com.hmdp.mapper.FollowMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 04:20
+ * @description 关注关系 redis 中每个用户一个 set(follows:{用户id}，member：关注的用户id)
+ * 1. 关注、取关时先写 tb_follow 再写 set，是否关注用 SISMEMBER，共同关注用 SINTER，都不查数据库
+ * 2. 存量关注关系由回填任务按主键分页写入，回填完成前查询仍然走数据库
+ * 3. 定期检查回填完成标记，标记丢失(redis 数据丢失)时改回查询数据库并重新回填
+ * tb_follow 是关注关系的准确数据，set 只是加速
+ */
+@Slf4j
+@Component
+public class FollowGraph {
+
+    // 回填锁的过期时间(分钟)，防止节点宕机后无法再次回填
+    private static final long BACKFILL_LOCK_TTL = 30L;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+    static {
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unlock.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private FollowMapper followMapper;
+
+    // 回填时每页的关注关系数
+    @Value("${hmdp.follow.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+    // 启动时以及发现回填完成标记丢失时是否自动回填
+    @Value("${hmdp.follow.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+    // 检查回填完成标记的间隔(毫秒)
+    @Value("${hmdp.follow.ready-check-millis:5000}")
+    private long readyCheckMillis;
+
+    // 最近一次检查时回填是否已完成
+    private volatile boolean ready;
+    private volatile long readyCheckedAt;
+    // 本节点是否有回填任务在排队或执行
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "follow-backfill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public FollowGraph(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (backfillOnStartup) {
+            submitBackfill();
+        }
+    }
+
+    private void submitBackfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            return;
+        }
+        backfillExecutor.submit(() -> {
+            try {
+                if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(FOLLOW_READY_KEY))) {
+                    backfill();
+                }
+            } catch (Exception e) {
+                log.error("回填关注关系失败", e);
+            } finally {
+                backfilling.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * 写入关注关系(tb_follow 写入成功后调用)
+     */
+    public void follow(Long userId, Long followUserId) {
+        stringRedisTemplate.opsForSet().add(FOLLOWS_KEY + userId, followUserId.toString());
+    }
+
+    /**
+     * 删除关注关系(tb_follow 删除成功后调用)
+     */
+    public void unfollow(Long userId, Long followUserId) {
+        stringRedisTemplate.opsForSet().remove(FOLLOWS_KEY + userId, followUserId.toString());
+    }
+
+    /**
+     * 是否关注
+     */
+    public boolean isFollowing(Long userId, Long followUserId) {
+        if (isReady()) {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(FOLLOWS_KEY + userId, followUserId.toString()));
+        }
+        Integer count = followMapper.selectCount(new QueryWrapper<Follow>()
+                .eq("user_id", userId).eq("follow_user_id", followUserId));
+        return count != null && count > 0;
+    }
+
+    /**
+     * 两个用户的共同关注
+     */
+    public Set<Long> commonFollows(Long userId, Long otherId) {
+        if (isReady()) {
+            Set<String> common = stringRedisTemplate.opsForSet().intersect(FOLLOWS_KEY + userId, FOLLOWS_KEY + otherId);
+            return toIds(common);
+        }
+        Set<Long> follows = queryFollows(userId);
+        follows.retainAll(queryFollows(otherId));
+        return follows;
+    }
+
+    /**
+     * 用户关注的人中属于某个用户集合(redis set，如大V列表)的
+     * @return 回填未完成时返回 null，由调用方查询数据库
+     */
+    public Set<Long> followsIn(Long userId, String setKey) {
+        if (!isReady()) {
+            return null;
+        }
+        return toIds(stringRedisTemplate.opsForSet().intersect(FOLLOWS_KEY + userId, setKey));
+    }
+
+    /**
+     * 回填存量关注关系，按主键分页(id > 上一页最后的 id)，每页一次 pipeline 写入；
+     * 查询一页和写入之间被取关的关系会被重新写入，所以写入后再按主键检查这一页，已删除的从 set 中移除；
+     * 进度保存在 redis 中，中断后从上次的位置继续；多节点通过锁保证只有一个节点执行
+     * @return 本次回填的关注关系数，没有拿到锁返回 -1
+     */
+    public long backfill() {
+        String token = IdUtil.fastSimpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LOCK_FOLLOW_BACKFILL_KEY, token, BACKFILL_LOCK_TTL, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return -1;
+        }
+        try {
+            String cursor = stringRedisTemplate.opsForValue().get(FOLLOW_BACKFILL_CURSOR_KEY);
+            long lastId = cursor == null ? 0L : Long.parseLong(cursor);
+            long total = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Follow> follows = followMapper.selectList(new QueryWrapper<Follow>()
+                        .select("id", "user_id", "follow_user_id")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("limit " + backfillBatchSize));
+                if (follows.isEmpty()) {
+                    break;
+                }
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Follow follow : follows) {
+                        connection.sAdd((FOLLOWS_KEY + follow.getUserId()).getBytes(StandardCharsets.UTF_8),
+                                follow.getFollowUserId().toString().getBytes(StandardCharsets.UTF_8));
+                    }
+                    return null;
+                });
+                removeUnfollowed(follows);
+                lastId = follows.get(follows.size() - 1).getId();
+                total += follows.size();
+                stringRedisTemplate.opsForValue().set(FOLLOW_BACKFILL_CURSOR_KEY, Long.toString(lastId));
+                if (follows.size() < backfillBatchSize) {
+                    break;
+                }
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                // 回填期间新的关注由 follow 写入，取关由 unfollow 和上面的检查移除
+                stringRedisTemplate.opsForValue().set(FOLLOW_READY_KEY, "1");
+                stringRedisTemplate.delete(FOLLOW_BACKFILL_CURSOR_KEY);
+                ready = true;
+                readyCheckedAt = System.currentTimeMillis();
+                log.info("关注关系回填完成，本次回填 {} 条", total);
+            }
+            return total;
+        } finally {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_FOLLOW_BACKFILL_KEY), token);
+        }
+    }
+
+    /**
+     * 移除这一页中已经被取关的关系，取关后又重新关注的(主键变了)保留
+     */
+    private void removeUnfollowed(List<Follow> follows) {
+        Set<Long> present = followMapper.selectList(new QueryWrapper<Follow>()
+                        .select("id")
+                        .in("id", follows.stream().map(Follow::getId).collect(Collectors.toList())))
+                .stream()
+                .map(Follow::getId)
+                .collect(Collectors.toSet());
+        for (Follow follow : follows) {
+            if (present.contains(follow.getId())) {
+                continue;
+            }
+            Integer count = followMapper.selectCount(new QueryWrapper<Follow>()
+                    .eq("user_id", follow.getUserId()).eq("follow_user_id", follow.getFollowUserId()));
+            if (count == null || count == 0) {
+                unfollow(follow.getUserId(), follow.getFollowUserId());
+            }
+        }
+    }
+
+    /**
+     * 回填是否已完成，最多每隔 readyCheckMillis 查询一次 redis；
+     * 完成标记丢失(redis 数据丢失)时改回查询数据库，并重新回填
+     */
+    public boolean isReady() {
+        long now = System.currentTimeMillis();
+        if (now - readyCheckedAt < readyCheckMillis) {
+            return ready;
+        }
+        readyCheckedAt = now;
+        boolean wasReady = ready;
+        ready = Boolean.TRUE.equals(stringRedisTemplate.hasKey(FOLLOW_READY_KEY));
+        if (wasReady && !ready) {
+            log.warn("关注关系回填标记丢失，改为查询数据库");
+            if (backfillOnStartup) {
+                submitBackfill();
+            }
+        }
+        return ready;
+    }
+
+    private Set<Long> queryFollows(Long userId) {
+        return followMapper.selectList(new QueryWrapper<Follow>()
+                        .select("follow_user_id")
+                        .eq("user_id", userId))
+                .stream()
+                .map(Follow::getFollowUserId)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<Long> toIds(Set<String> members) {
+        if (members == null || members.isEmpty()) {
+            return new HashSet<>();
+        }
+        return members.stream().map(Long::valueOf).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,245 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.hmdp.entity.Blog;
+import com.hmdp.service.IBlogService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 00:50
+ * @description 博文热度榜
+ * 发布、点赞、评论时给博文加分，分数按半衰期随时间指数衰减(见 hot_incr.lua)，
+ * 热度榜保存在 zset 中，分页查询只需要 ZREVRANGE，与博文总数无关；
+ * 定时只保留分数最高的 N 篇，并在需要时重置衰减的基准时间(见 hot_compact.lua)；
+ * 从数据库按点赞数和发布时间初始化后写入 blog:hot:ready，没有该标记时(首次启动或 redis 数据丢失)重新初始化，
+ * 初始化完成前 /blog/hot 按点赞数查询数据库
+ */
+@Slf4j
+@Component
+public class HotBlogRanking {
+
+    private static final DefaultRedisScript<Double> HOT_INCR_SCRIPT;
+    private static final DefaultRedisScript<Long> HOT_COMPACT_SCRIPT;
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+    static {
+        HOT_INCR_SCRIPT = new DefaultRedisScript<>();
+        HOT_INCR_SCRIPT.setLocation(new ClassPathResource("hot_incr.lua"));
+        HOT_INCR_SCRIPT.setResultType(Double.class);
+        HOT_COMPACT_SCRIPT = new DefaultRedisScript<>();
+        HOT_COMPACT_SCRIPT.setLocation(new ClassPathResource("hot_compact.lua"));
+        HOT_COMPACT_SCRIPT.setResultType(Long.class);
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unlock.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    // 经过多少个半衰期后重置基准时间
+    private static final int REBASE_HALF_LIVES = 16;
+    // 初始化锁的过期时间(秒)
+    private static final long INIT_LOCK_TTL = 60L;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private IBlogService blogService;
+
+    // 热度半衰期(小时)
+    @Value("${hmdp.blog.hot.half-life-hours:24}")
+    private long halfLifeHours;
+    // 榜单保留的博文数
+    @Value("${hmdp.blog.hot.max-size:10000}")
+    private long maxSize;
+    // 压缩间隔(秒)
+    @Value("${hmdp.blog.hot.compact-interval-seconds:60}")
+    private long compactIntervalSeconds;
+    // 各事件的权重
+    @Value("${hmdp.blog.hot.publish-weight:3}")
+    private double publishWeight;
+    @Value("${hmdp.blog.hot.like-weight:1}")
+    private double likeWeight;
+    @Value("${hmdp.blog.hot.comment-weight:2}")
+    private double commentWeight;
+
+    private long halfLifeMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "blog-hot-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public HotBlogRanking(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        halfLifeMillis = TimeUnit.HOURS.toMillis(halfLifeHours);
+        scheduler.scheduleWithFixedDelay(this::compact, 0, compactIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    public void onPublish(Long blogId) {
+        incr(blogId, publishWeight);
+    }
+
+    /**
+     * @param delta 1：点赞 -1：取消点赞
+     */
+    public void onLike(Long blogId, long delta) {
+        incr(blogId, likeWeight * delta);
+    }
+
+    public void onComment(Long blogId) {
+        incr(blogId, commentWeight);
+    }
+
+    /**
+     * 分页查询热度最高的博文id
+     * @param current 页码，从 1 开始
+     * @param size 每页数量
+     * @return 按热度从高到低排列，最多 size + 1 条，多出的一条用于判断是否还有下一页；页码超出榜单范围时为空
+     */
+    public List<Long> page(int current, int size) {
+        long start = (long) (current - 1) * size;
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(BLOG_HOT_KEY, start, start + size);
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ids.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    /**
+     * 游标分页，从上一页最后一篇之后开始，顺序与 ZREVRANGE 一致(分数倒序，分数相同时按博文id字典序倒序)；
+     * 翻页期间分数变化的博文可能重复或遗漏，重置基准时间后游标重新从榜首开始
+     * @param lastScore 上一页最后一篇的分数，null 表示第一页
+     * @param lastId 上一页最后一篇的博文id
+     * @param size 每页数量
+     */
+    public List<ZSetOperations.TypedTuple<String>> pageAfter(Double lastScore, String lastId, int size) {
+        ZSetOperations<String, String> ops = stringRedisTemplate.opsForZSet();
+        if (lastScore == null) {
+            Set<ZSetOperations.TypedTuple<String>> tuples = ops.reverseRangeWithScores(BLOG_HOT_KEY, 0, size - 1);
+            return tuples == null ? Collections.emptyList() : new ArrayList<>(tuples);
+        }
+        List<ZSetOperations.TypedTuple<String>> result = new ArrayList<>(size);
+        long offset = 0;
+        while (result.size() < size) {
+            Set<ZSetOperations.TypedTuple<String>> tuples = ops.reverseRangeByScoreWithScores(
+                    BLOG_HOT_KEY, Double.NEGATIVE_INFINITY, lastScore, offset, size);
+            if (tuples == null || tuples.isEmpty()) {
+                break;
+            }
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                // 与上一页最后一篇分数相同的，跳过排在它前面的(含它自己)
+                boolean seen = tuple.getScore() == lastScore.doubleValue() && tuple.getValue().compareTo(lastId) >= 0;
+                if (!seen && result.size() < size) {
+                    result.add(tuple);
+                }
+            }
+            offset += tuples.size();
+            if (tuples.size() < size) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 榜单是否已从数据库初始化
+     * 不能用榜单是否为空判断：redis 数据丢失后任何一次加分都会重新创建 zset
+     */
+    public boolean isReady() {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(BLOG_HOT_READY_KEY));
+    }
+
+    private void incr(Long blogId, double weight) {
+        stringRedisTemplate.execute(HOT_INCR_SCRIPT, Arrays.asList(BLOG_HOT_KEY, BLOG_HOT_EPOCH_KEY),
+                blogId.toString(), String.valueOf(weight),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(halfLifeMillis));
+    }
+
+    /**
+     * 裁剪榜单尾部、必要时重置基准时间；尚未初始化时从数据库初始化
+     */
+    private void compact() {
+        try {
+            if (!isReady()) {
+                rebuild();
+                return;
+            }
+            Long removed = stringRedisTemplate.execute(HOT_COMPACT_SCRIPT, Arrays.asList(BLOG_HOT_KEY, BLOG_HOT_EPOCH_KEY),
+                    String.valueOf(maxSize), String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(halfLifeMillis), String.valueOf(REBASE_HALF_LIVES));
+            if (removed != null && removed > 0) {
+                log.debug("热度榜裁剪 {} 篇博文", removed);
+            }
+        } catch (Exception e) {
+            log.error("热度榜压缩失败", e);
+        }
+    }
+
+    /**
+     * 从数据库初始化：取点赞数最多的 N 篇，把点赞和发布都当作发布时间发生的事件计算分数，
+     * 用 ZINCRBY 累加到榜单上，保留初始化前已经产生的加分；完成后写入 blog:hot:ready，多节点通过锁保证只有一个节点执行
+     */
+    private void rebuild() {
+        String token = IdUtil.fastSimpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_BLOG_HOT_INIT_KEY, token, INIT_LOCK_TTL, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            List<Blog> blogs = blogService.query()
+                    .select("id", "liked", "create_time")
+                    .orderByDesc("liked")
+                    .last("limit " + maxSize)
+                    .list();
+            // 沿用已有的基准时间，与之后的加分保持同一基准
+            String epochValue = stringRedisTemplate.opsForValue().get(BLOG_HOT_EPOCH_KEY);
+            long epoch = epochValue == null ? System.currentTimeMillis() : Long.parseLong(epochValue);
+            if (epochValue == null) {
+                stringRedisTemplate.opsForValue().set(BLOG_HOT_EPOCH_KEY, String.valueOf(epoch));
+            }
+            byte[] key = BLOG_HOT_KEY.getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Blog blog : blogs) {
+                    long createTime = blog.getCreateTime() == null ? epoch
+                            : blog.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    int liked = blog.getLiked() == null ? 0 : blog.getLiked();
+                    double score = (liked * likeWeight + publishWeight) * Math.pow(2, (double) (createTime - epoch) / halfLifeMillis);
+                    connection.zIncrBy(key, score, blog.getId().toString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            stringRedisTemplate.opsForValue().set(BLOG_HOT_READY_KEY, "1");
+            log.info("热度榜初始化完成，共 {} 篇博文", blogs.size());
+        } finally {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_BLOG_HOT_INIT_KEY), token);
+        }
+    }
+}
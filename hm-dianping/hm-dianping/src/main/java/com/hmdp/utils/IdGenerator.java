@@ -0,0 +1,16 @@
+package com.hmdp.utils;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 18:10
+ * @description 全局唯一id生成器
+ */
+public interface IdGenerator {
+
+    /**
+     * 生成全局唯一id
+     * @param keyPrefix 业务前缀
+     * @return 趋势递增的全局唯一id
+     */
+    long nextId(String keyPrefix);
+}
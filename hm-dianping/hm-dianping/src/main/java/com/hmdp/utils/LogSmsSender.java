@@ -0,0 +1,33 @@
+package com.hmdp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 23:50
+ * @description 本地开发用的短信发送 只打印日志，可以模拟网关耗时
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hmdp.sms.sender", havingValue = "log", matchIfMissing = true)
+public class LogSmsSender implements SmsSender {
+
+    // 模拟每批短信的网关耗时(毫秒)
+    @Value("${hmdp.sms.fake-latency-millis:0}")
+    private long fakeLatencyMillis;
+
+    @Override
+    public void send(List<Message> messages) throws Exception {
+        if (fakeLatencyMillis > 0) {
+            Thread.sleep(fakeLatencyMillis);
+        }
+        for (Message message : messages) {
+            log.debug("发送短信成功，手机号：{}，内容：{}", message.getPhone(), message.getContent());
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.util.StrUtil;
+import com.hmdp.dto.UserDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static com.hmdp.utils.RedisConstants.LOGIN_USER_TTL;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 20:40
+ * @description 登录态管理，hmdp.session.mode 切换两种模式
+ * redis：登录用户保存在 redis hash 中
+ *   1. 本地按 token 缓存一小段时间的用户信息，缓存有效期内的请求不访问 redis
+ *   2. 只有 token 剩余有效期低于阈值时才刷新，刷新请求放进队列，后台用 pipeline 批量执行 EXPIRE
+ *   3. token 按一致性哈希分布在多个 redis 节点上(见 SessionStore)
+ * signed：用户信息和过期时间放在签名令牌中，校验签名和本地吊销列表即可，不访问 redis，也不占用 redis 内存；
+ *   令牌不能续期，登出时吊销
+ */
+@Slf4j
+@Component
+public class LoginSessionManager {
+
+    // 每批刷新的最大 token 数
+    private static final int REFRESH_BATCH_SIZE = 1000;
+    // 本地缓存的最大 token 数，超过后清理
+    private static final int MAX_LOCAL_SESSIONS = 100000;
+    private static final BeanMapper<UserDTO> USER_MAPPER = BeanMapper.of(UserDTO.class);
+
+    @Resource
+    private TokenRevocationList tokenRevocationList;
+    @Resource
+    private SessionStore sessionStore;
+
+    // 登录态模式：redis / signed
+    @Value("${hmdp.session.mode:redis}")
+    private String mode;
+    // 签名令牌的密钥
+    @Value("${hmdp.session.secret:}")
+    private String secret;
+    // 签名令牌的有效期(分钟)
+    @Value("${hmdp.session.signed-ttl-minutes:1440}")
+    private long signedTtlMinutes;
+    // 本地缓存的有效期(毫秒)
+    @Value("${hmdp.session.local-ttl-millis:5000}")
+    private long localTtlMillis;
+    // token 剩余有效期低于该值时才刷新(分钟)
+    @Value("${hmdp.session.refresh-threshold-minutes:20}")
+    private long refreshThresholdMinutes;
+    // 后台批量刷新的间隔(毫秒)
+    @Value("${hmdp.session.refresh-interval-millis:200}")
+    private long refreshIntervalMillis;
+
+    private SignedTokenCodec signedTokenCodec;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // 等待刷新有效期的 token
+    private final Set<String> pendingRefresh = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "login-session-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class Session {
+        private final UserDTO user;
+        // 本地缓存的时间
+        private final long cachedAt;
+        // 估计的 redis 过期时间，0 表示未知
+        private volatile long expireAt;
+
+        Session(UserDTO user, long cachedAt, long expireAt) {
+            this.user = user;
+            this.cachedAt = cachedAt;
+            this.expireAt = expireAt;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isSigned()) {
+            if (StrUtil.isBlank(secret)) {
+                throw new IllegalStateException("签名令牌模式需要配置 hmdp.session.secret");
+            }
+            signedTokenCodec = new SignedTokenCodec(secret);
+            tokenRevocationList.start();
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::flushRefresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::evictExpired, localTtlMillis, localTtlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        flushRefresh();
+    }
+
+    private boolean isSigned() {
+        return "signed".equals(mode);
+    }
+
+    /**
+     * 登录成功后创建登录态
+     * @param userDTO 登录用户
+     * @return token
+     */
+    public String createSession(UserDTO userDTO) {
+        if (isSigned()) {
+            long expireAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(signedTtlMinutes);
+            return signedTokenCodec.sign(userDTO, expireAt, UUID.randomUUID().toString(true));
+        }
+        // 1. 声明一个 token 作为登陆令牌
+        String token = UUID.randomUUID().toString(true);
+        // 2. 将 User 转为 Hash 存储
+        Map<String, Object> userMap = USER_MAPPER.toMap(userDTO); // 把DTO转为map，忽略空值并把值转为字符串
+        // 3. 保存到 token 所在的 redis 节点，并设置 token 的过期时间
+        sessionStore.save(token, userMap, LOGIN_USER_TTL);
+        return token;
+    }
+
+    /**
+     * 根据 token 获取登录用户，必要时刷新 token 有效期
+     * @param token 登录令牌
+     * @return 登录用户，未登录返回 null
+     */
+    public UserDTO getUser(String token) {
+        long now = System.currentTimeMillis();
+        if (isSigned()) {
+            SignedTokenCodec.SignedToken signedToken = signedTokenCodec.parse(token);
+            if (signedToken == null || signedToken.getExpireAt() <= now
+                    || tokenRevocationList.isRevoked(signedToken.getTokenId())) {
+                return null;
+            }
+            return signedToken.getUser();
+        }
+        Session session = sessions.get(token);
+        if (session == null || now - session.cachedAt >= localTtlMillis) {
+            // 1. 本地缓存不存在或已过期，查询 redis
+            session = load(token, session, now);
+            if (session == null) {
+                return null;
+            }
+        }
+        // 2. 剩余有效期低于阈值才刷新
+        if (session.expireAt - now < TimeUnit.MINUTES.toMillis(refreshThresholdMinutes)) {
+            pendingRefresh.add(token);
+        }
+        return session.user;
+    }
+
+    /**
+     * 登出时删除登录态
+     * @param token 登录令牌
+     */
+    public void removeSession(String token) {
+        if (isSigned()) {
+            SignedTokenCodec.SignedToken signedToken = signedTokenCodec.parse(token);
+            if (signedToken != null && signedToken.getExpireAt() > System.currentTimeMillis()) {
+                tokenRevocationList.revoke(signedToken.getTokenId(), signedToken.getExpireAt());
+            }
+            return;
+        }
+        sessions.remove(token);
+        pendingRefresh.remove(token);
+        sessionStore.delete(token);
+    }
+
+    private Session load(String token, Session old, long now) {
+        Map<Object, Object> userMap = sessionStore.entries(token);
+        if (userMap.isEmpty()) {
+            sessions.remove(token);
+            return null;
+        }
+        UserDTO userDTO = USER_MAPPER.fromMap(userMap);
+        // 沿用之前估计的过期时间，避免每次重新加载都刷新
+        Session session = new Session(userDTO, now, old == null ? 0L : old.expireAt);
+        if (sessions.size() >= MAX_LOCAL_SESSIONS) {
+            evictExpired();
+        }
+        sessions.put(token, session);
+        return session;
+    }
+
+    /**
+     * 用 pipeline 批量刷新 token 有效期
+     */
+    private void flushRefresh() {
+        try {
+            while (!pendingRefresh.isEmpty()) {
+                List<String> tokens = new ArrayList<>(Math.min(pendingRefresh.size(), REFRESH_BATCH_SIZE));
+                for (String token : pendingRefresh) {
+                    pendingRefresh.remove(token);
+                    tokens.add(token);
+                    if (tokens.size() >= REFRESH_BATCH_SIZE) {
+                        break;
+                    }
+                }
+                long seconds = TimeUnit.MINUTES.toSeconds(LOGIN_USER_TTL);
+                long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+                boolean[] results = sessionStore.expire(tokens, seconds);
+                for (int i = 0; i < tokens.size(); i++) {
+                    Session session = sessions.get(tokens.get(i));
+                    if (!results[i]) {
+                        // redis 中的登录态已经不存在
+                        sessions.remove(tokens.get(i));
+                    } else if (session != null) {
+                        session.expireAt = expireAt;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("批量刷新登录有效期失败", e);
+        }
+    }
+
+    /**
+     * 清理本地缓存
+     * 用户信息过期后仍保留一段时间，用于记住估计的过期时间，活跃的 token 重新加载后不需要马上刷新
+     */
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        long idleMillis = Math.max(localTtlMillis,
+                TimeUnit.MINUTES.toMillis(LOGIN_USER_TTL - refreshThresholdMinutes));
+        sessions.values().removeIf(session -> now - session.cachedAt >= idleMillis || now >= session.expireAt && session.expireAt != 0);
+        if (sessions.size() >= MAX_LOCAL_SESSIONS) {
+            sessions.clear();
+        }
+    }
+}
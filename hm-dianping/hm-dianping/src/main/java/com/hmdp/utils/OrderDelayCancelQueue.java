@@ -0,0 +1,162 @@
+package com.hmdp.utils;
+
+import com.hmdp.service.IVoucherOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.ORDER_DELAY_CANCEL_KEY;
+import static com.hmdp.utils.RedisConstants.ORDER_PAY_TIMEOUT;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 16:20
+ * @description 未支付订单延时取消队列
+ * 延时任务存在 redis 的 zset 中(member：订单id，score：到期时间戳)，不需要扫描订单表。
+ * 每秒从 zset 中取出即将到期的任务放进本地时间轮，到期时用 lua 把任务的到期时间推迟一个租约(多节点只有一个能成功)抢占任务，
+ * 取消订单并归还库存的事务提交后才 ZREM。
+ * 任务在执行完成前一直留在 zset 中，节点在执行中宕机时租约到期后由其他节点重新执行
+ */
+@Slf4j
+@Component
+public class OrderDelayCancelQueue {
+
+    // 每次拉取未来多长时间内到期的任务
+    private static final long LOOKAHEAD_MS = 5000L;
+    // 每页拉取的任务数
+    private static final int FETCH_BATCH_SIZE = 1000;
+    // 每次轮询最多加载的任务数
+    private static final int MAX_FETCH_PER_POLL = 100000;
+    // 抢占任务的租约时长，取消失败或节点宕机后到期重试
+    private static final long RETRY_DELAY_MS = 10000L;
+    // 时间轮的 tick，任务最多提前一个 tick 触发
+    private static final long TICK_MS = 100L;
+
+    private static final DefaultRedisScript<Long> CLAIM_SCRIPT;
+    static {
+        CLAIM_SCRIPT = new DefaultRedisScript<>();
+        CLAIM_SCRIPT.setLocation(new ClassPathResource("claim_cancel_task.lua"));
+        CLAIM_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+
+    // 已经放进本地时间轮的订单，避免重复加载
+    private final Set<String> scheduled = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final ExecutorService cancelExecutor = Executors.newFixedThreadPool(4);
+    private final TimingWheel timingWheel = new TimingWheel("order-cancel-wheel", TICK_MS, 512, cancelExecutor);
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "order-cancel-poller");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public OrderDelayCancelQueue(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        poller.scheduleWithFixedDelay(this::poll, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        poller.shutdownNow();
+        timingWheel.stop();
+        cancelExecutor.shutdownNow();
+    }
+
+    /**
+     * 下单后添加超时取消任务
+     * @param orderIds 订单id
+     */
+    public void add(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        double deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ORDER_PAY_TIMEOUT);
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(orderIds.size() * 2);
+        for (Long orderId : orderIds) {
+            tuples.add(new DefaultTypedTuple<>(orderId.toString(), deadline));
+        }
+        stringRedisTemplate.opsForZSet().add(ORDER_DELAY_CANCEL_KEY, tuples);
+    }
+
+    /**
+     * 订单已支付时移除任务(不移除也没关系，取消时会判断订单状态)
+     * @param orderId 订单id
+     */
+    public void remove(Long orderId) {
+        stringRedisTemplate.opsForZSet().remove(ORDER_DELAY_CANCEL_KEY, orderId.toString());
+    }
+
+    /**
+     * 拉取即将到期的任务放进时间轮
+     */
+    private void poll() {
+        try {
+            long now = System.currentTimeMillis();
+            // 分页拉取，同一时刻到期的任务很多时也能一次性加载完
+            for (int offset = 0; offset < MAX_FETCH_PER_POLL; offset += FETCH_BATCH_SIZE) {
+                Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                        .rangeByScoreWithScores(ORDER_DELAY_CANCEL_KEY, 0, now + LOOKAHEAD_MS, offset, FETCH_BATCH_SIZE);
+                if (tuples == null) {
+                    return;
+                }
+                for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                    String orderId = tuple.getValue();
+                    if (orderId == null || tuple.getScore() == null || !scheduled.add(orderId)) {
+                        continue;
+                    }
+                    timingWheel.schedule(() -> fire(orderId), tuple.getScore().longValue() - now);
+                }
+                if (tuples.size() < FETCH_BATCH_SIZE) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("拉取延时取消任务失败", e);
+        }
+    }
+
+    /**
+     * 任务到期：抢占并取消订单
+     */
+    private void fire(String orderId) {
+        try {
+            // 1. 把到期时间推迟一个租约，成功才说明本节点抢到了任务
+            long now = System.currentTimeMillis();
+            Long claimed = stringRedisTemplate.execute(CLAIM_SCRIPT, Collections.singletonList(ORDER_DELAY_CANCEL_KEY),
+                    orderId, String.valueOf(now + TICK_MS), String.valueOf(now + RETRY_DELAY_MS));
+            if (claimed == null || claimed == 0) {
+                return;
+            }
+            // 2. 取消未支付订单并归还库存，事务提交后再删除任务；失败时任务留在 zset 中，租约到期后重试
+            voucherOrderService.cancelUnpaidOrder(Long.valueOf(orderId));
+            stringRedisTemplate.opsForZSet().remove(ORDER_DELAY_CANCEL_KEY, orderId);
+        } catch (Exception e) {
+            log.error("取消订单 {} 失败，稍后重试", orderId, e);
+        } finally {
+            scheduled.remove(orderId);
+        }
+    }
+}
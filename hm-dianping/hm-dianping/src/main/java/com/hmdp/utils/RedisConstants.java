@@ -6,8 +6,16 @@ package com.hmdp.utils;
 public class RedisConstants {
     public static final String LOGIN_CODE_KEY = "login:code:";
     public static final Long LOGIN_CODE_TTL = 2L;
+    public static final String SMS_COOLDOWN_KEY = "sms:cooldown:";
+    public static final String SMS_DAILY_KEY = "sms:daily:";
     public static final String LOGIN_USER_KEY = "login:token:";
     public static final Long LOGIN_USER_TTL = 30L;
+    public static final String LOGIN_REVOKED_KEY = "login:revoked";
+    public static final String LOGIN_REVOKED_CHANNEL = "login:revoked:channel";
+    public static final String USER_PHONE_KEY = "user:phone:";
+    public static final String USER_PHONE_READY_KEY = "user:phone:ready";
+    public static final String USER_PHONE_BACKFILL_CURSOR_KEY = "user:phone:backfill:cursor";
+    public static final String LOCK_USER_PHONE_BACKFILL_KEY = "lock:user:phone:backfill";
 
     public static final Long CACHE_NULL_TTL = 2L;
 
@@ -16,12 +24,44 @@ public class RedisConstants {
 
     public static final String CACHE_SHOP_TYPE_KEY = "cache:shop:type";
 
+    public static final Long CACHE_USER_TTL = 30L;
+    public static final String CACHE_USER_KEY = "cache:user:";
+
+    public static final Long CACHE_BLOG_TTL = 30L;
+    public static final String CACHE_BLOG_KEY = "cache:blog:";
+
+    public static final String CACHE_COUNT_KEY = "cache:count:";
+
     public static final String LOCK_SHOP_KEY = "lock:shop:";
     public static final Long LOCK_SHOP_TTL = 10L;
+    public static final String LOCK_CACHE_KEY = "lock:";
 
     public static final String SECKILL_STOCK_KEY = "seckill:stock:";
+    public static final String SECKILL_VOUCHER_KEY = "seckill:voucher:";
+    public static final String LIMIT_SECKILL_USER_KEY = "limit:seckill:user:";
+    public static final String LIMIT_SECKILL_VOUCHER_KEY = "limit:seckill:voucher:";
+    public static final String ID_WORKER_KEY = "id:worker:";
+    public static final Long ID_WORKER_TTL = 60L;
+    public static final String ORDER_DELAY_CANCEL_KEY = "order:delay:cancel";
+    public static final Long ORDER_PAY_TIMEOUT = 15L;
     public static final String BLOG_LIKED_KEY = "blog:liked:";
+    public static final String BLOG_LIKED_DELTA_KEY = "blog:liked:delta";
+    public static final String BLOG_LIKED_DELTA_FLUSHING_KEY = "blog:liked:delta:flushing";
+    public static final String LOCK_BLOG_COUNTER_FLUSH_KEY = "lock:blog:counter:flush";
+    public static final String BLOG_COMMENTS_KEY = "blog:comments:";
+    public static final String BLOG_COMMENTS_DELTA_KEY = "blog:comments:delta";
+    public static final String BLOG_COMMENTS_DELTA_FLUSHING_KEY = "blog:comments:delta:flushing";
+    public static final String BLOG_HOT_KEY = "blog:hot";
+    public static final String BLOG_HOT_EPOCH_KEY = "blog:hot:epoch";
+    public static final String BLOG_HOT_READY_KEY = "blog:hot:ready";
+    public static final String LOCK_BLOG_HOT_INIT_KEY = "lock:blog:hot:init";
+    public static final String FOLLOWS_KEY = "follows:";
+    public static final String FOLLOW_READY_KEY = "follows:ready";
+    public static final String FOLLOW_BACKFILL_CURSOR_KEY = "follows:backfill:cursor";
+    public static final String LOCK_FOLLOW_BACKFILL_KEY = "lock:follows:backfill";
     public static final String FEED_KEY = "feed:";
+    public static final String FEED_OUTBOX_KEY = "feed:outbox:";
+    public static final String FEED_BIG_AUTHOR_KEY = "feed:big";
     public static final String SHOP_GEO_KEY = "shop:geo:";
     public static final String USER_SIGN_KEY = "sign:";
 }
@@ -1,53 +1,218 @@
 package com.hmdp.utils;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.Resource;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author ZC_Wu 汐
  * @date 2024/12/13 16:21
  * @description 基于redis的id生成器
+ * 两种模式：
+ * incr：每个id执行一次 INCR
+ * segment：号段模式，一次 INCRBY 租用 step 个序列号，本地用 AtomicLong 无锁分配，用到一半时后台预取下一个号段
  */
+@Slf4j
 @Component
-public class RedisIdWorker {
+public class RedisIdWorker implements IdGenerator {
 
     // 开始的时间戳
     private static final long BEGIN_TIMESTAMP = 1640995200L;
     // 序列号位数
     private static final long COUNT_BITS = 32L;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
 
     private StringRedisTemplate stringRedisTemplate;
     public RedisIdWorker(StringRedisTemplate stringRedisTemplate) {
         this.stringRedisTemplate = stringRedisTemplate;
     }
 
+    // 是否使用号段模式
+    @Value("${hmdp.id-worker.segment:false}")
+    private boolean segmentMode;
+    // 每个号段的序列号数量
+    @Value("${hmdp.id-worker.segment-step:1000}")
+    private long segmentStep;
+
+    // 当天的日期缓存，跨天时才重新计算
+    private volatile Day day;
+    // 每个业务前缀一个号段缓冲
+    private final Map<String, SegmentBuffer> buffers = new ConcurrentHashMap<>();
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "id-segment-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 一天的时间范围(与原实现一致，用本地时间按 UTC 换算秒数)
+     */
+    private static class Day {
+        private final String date;
+        private final long startSecond;
+        private final long endSecond;
+        private final long offsetSeconds;
+
+        Day(String date, long startSecond, long endSecond, long offsetSeconds) {
+            this.date = date;
+            this.startSecond = startSecond;
+            this.endSecond = endSecond;
+            this.offsetSeconds = offsetSeconds;
+        }
+    }
+
+    /**
+     * 号段：[cursor, end] 范围内的序列号，只能在 date 这一天使用
+     */
+    private static class Segment {
+        private final String date;
+        private final AtomicLong cursor;
+        private final long end;
+        // 分配到这个序列号时预取下一个号段
+        private final long prefetchAt;
+
+        Segment(String date, long start, long end) {
+            this.date = date;
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = start + (end - start + 1) / 2;
+        }
+    }
+
+    private static class SegmentBuffer {
+        private volatile Segment current;
+        // 预取中的下一个号段
+        private CompletableFuture<Segment> next;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        prefetchExecutor.shutdownNow();
+    }
+
     /**
      * 使用redis生成全局唯一id
      * 传一个前缀区分不同业务
      * @param keyPrefix 业务前缀
      * @return
      */
+    @Override
     public long nextId(String keyPrefix) {
         // 1. 生成时间戳
-        LocalDateTime now = LocalDateTime.now();
-        long nowSecond = now.toEpochSecond(ZoneOffset.UTC);
-        long timestamp = nowSecond - BEGIN_TIMESTAMP;
+        long nowSecond = Instant.now().getEpochSecond();
+        Day today = currentDay(nowSecond);
+        long timestamp = nowSecond + today.offsetSeconds - BEGIN_TIMESTAMP;
 
         // 2. 生成序列号
-        // 2.1 获取当前日期，精确到日
-        String data = now.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        // 2.2 自增长
-        Long count = stringRedisTemplate.opsForValue().increment("icr:" + keyPrefix + ":" + data); // 不存在会自动创建一个key
+        long count = segmentMode ? nextCount(keyPrefix, today.date) : incrCount(keyPrefix, today.date);
 
         // 3. 拼接并返回
         return timestamp << COUNT_BITS | count; // 先将时间戳左移空出位置来，然后用或运算(左移空出来的位置上都为0，count的每个位置上不管是几和0做或运算都是count原来的值)拼上count的值
     }
 
+    /**
+     * incr 模式：每个id自增一次
+     */
+    private long incrCount(String keyPrefix, String date) {
+        Long count = stringRedisTemplate.opsForValue().increment("icr:" + keyPrefix + ":" + date); // 不存在会自动创建一个key
+        return count;
+    }
+
+    /**
+     * 号段模式：从本地号段中分配序列号
+     * 序列号在同一天的 key 内唯一，号段只在租用的那一天使用，所以多节点生成的id不会重复
+     */
+    private long nextCount(String keyPrefix, String date) {
+        SegmentBuffer buffer = buffers.computeIfAbsent(keyPrefix, k -> new SegmentBuffer());
+        while (true) {
+            Segment segment = buffer.current;
+            if (segment != null && segment.date.equals(date)) {
+                long count = segment.cursor.getAndIncrement();
+                if (count <= segment.end) {
+                    if (count == segment.prefetchAt) {
+                        prefetch(buffer, keyPrefix, date);
+                    }
+                    return count;
+                }
+            }
+            // 号段用完或已跨天，切换到下一个号段
+            switchSegment(buffer, segment, keyPrefix, date);
+        }
+    }
+
+    private void prefetch(SegmentBuffer buffer, String keyPrefix, String date) {
+        synchronized (buffer) {
+            if (buffer.next == null) {
+                buffer.next = CompletableFuture.supplyAsync(() -> lease(keyPrefix, date), prefetchExecutor);
+            }
+        }
+    }
+
+    private void switchSegment(SegmentBuffer buffer, Segment old, String keyPrefix, String date) {
+        synchronized (buffer) {
+            // 其他线程已经切换过了
+            if (buffer.current != old) {
+                return;
+            }
+            Segment segment = null;
+            if (buffer.next != null) {
+                try {
+                    segment = buffer.next.join();
+                } catch (Exception e) {
+                    log.warn("预取号段失败, keyPrefix = {}", keyPrefix, e);
+                }
+                buffer.next = null;
+            }
+            // 没有预取或预取的号段不是今天的，同步租用
+            if (segment == null || !segment.date.equals(date)) {
+                segment = lease(keyPrefix, date);
+            }
+            buffer.current = segment;
+        }
+    }
+
+    /**
+     * 用 INCRBY 租用一个号段
+     */
+    private Segment lease(String keyPrefix, String date) {
+        Long end = stringRedisTemplate.opsForValue().increment("icr:" + keyPrefix + ":" + date, segmentStep);
+        if (end == null) {
+            throw new IllegalStateException("租用号段失败: " + keyPrefix);
+        }
+        return new Segment(date, end - segmentStep + 1, end);
+    }
+
+    /**
+     * 当天的日期，只在跨天时重新创建
+     */
+    private Day currentDay(long nowSecond) {
+        Day d = day;
+        if (d != null && nowSecond + d.offsetSeconds >= d.startSecond && nowSecond + d.offsetSeconds < d.endSecond) {
+            return d;
+        }
+        ZoneOffset offset = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochSecond(nowSecond));
+        LocalDate date = LocalDateTime.ofEpochSecond(nowSecond, 0, offset).toLocalDate();
+        long start = date.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        d = new Day(date.format(DATE_FORMATTER), start, start + 86400, offset.getTotalSeconds());
+        day = d;
+        return d;
+    }
+
     public static void main(String[] args) {
         LocalDateTime time = LocalDateTime.of(2022, 1, 1, 0, 0, 0);
         long second = time.toEpochSecond(ZoneOffset.UTC);
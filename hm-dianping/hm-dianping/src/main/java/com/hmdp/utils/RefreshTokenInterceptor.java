@@ -1,15 +1,11 @@
 package com.hmdp.utils;
 
-import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.hmdp.dto.UserDTO;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author ZC_Wu 汐
@@ -17,10 +13,10 @@ import java.util.concurrent.TimeUnit;
  * @description 第一层拦截器 刷新 token 拦截器 用户访问时刷新token的有效时间，未登录直接放行
  */
 public class RefreshTokenInterceptor implements HandlerInterceptor {
-    private StringRedisTemplate stringRedisTemplate;
+    private LoginSessionManager loginSessionManager;
 
-    public RefreshTokenInterceptor(StringRedisTemplate stringRedisTemplate) {
-        this.stringRedisTemplate = stringRedisTemplate;
+    public RefreshTokenInterceptor(LoginSessionManager loginSessionManager) {
+        this.loginSessionManager = loginSessionManager;
     }
 
     @Override
@@ -33,24 +29,17 @@ public class RefreshTokenInterceptor implements HandlerInterceptor {
             return true;// 放行
         }
 
-        // 2. 基于 token 获取redis中的用户
-        String key = RedisConstants.LOGIN_USER_KEY + token;
-        Map<Object, Object> userMap = stringRedisTemplate.opsForHash().entries(key);
+        // 2. 基于 token 获取用户 优先使用本地缓存，需要时后台批量刷新 token 的有效期
+        UserDTO userDTO = loginSessionManager.getUser(token);
 
         // 3. 判断用户是否存在
-        if (userMap.isEmpty()) {
+        if (userDTO == null) {
             return true;
         }
 
-        // 5. 将查询到的 Hash 数据转为 UserDTO 对象
-        UserDTO userDTO = BeanUtil.fillBeanWithMap(userMap, new UserDTO(), false);
-
-        // 6. 存在，保存用户到 ThreadLocal
+        // 4. 存在，保存用户到 ThreadLocal
         UserHolder.saveUser(userDTO);
-
-        // 7. 刷新 token 的有效期
-        stringRedisTemplate.expire(key, RedisConstants.LOGIN_USER_TTL, TimeUnit.MINUTES);
-        // 8. 放行
+        // 5. 放行
         return true;
     }
 
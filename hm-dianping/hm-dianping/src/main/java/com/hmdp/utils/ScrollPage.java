@@ -0,0 +1,50 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 03:10
+ * @description 不查询总数的分页(滚动加载)
+ * 关闭 PaginationInnerInterceptor 的 COUNT 查询，多查一条(LIMIT offset, size + 1)判断是否还有下一页，
+ * 一次分页只执行一条 SQL；确实需要总数的页面使用 CountCache 缓存总数
+ */
+public class ScrollPage<T> extends Page<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    // 每页数量(实际查询 pageSize + 1 条)
+    private final long pageSize;
+    private boolean hasMore;
+
+    /**
+     * @param current 页码，从 1 开始
+     * @param size 每页数量
+     */
+    public ScrollPage(long current, long size) {
+        super(current, size + 1, false);
+        this.pageSize = size;
+    }
+
+    @Override
+    public long offset() {
+        long current = getCurrent();
+        return current <= 1 ? 0L : (current - 1) * pageSize;
+    }
+
+    @Override
+    public Page<T> setRecords(List<T> records) {
+        hasMore = records.size() > pageSize;
+        return super.setRecords(hasMore ? new ArrayList<>(records.subList(0, (int) pageSize)) : records);
+    }
+
+    /**
+     * 是否还有下一页
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,106 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.IdUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+
+import static com.hmdp.utils.RedisConstants.LIMIT_SECKILL_USER_KEY;
+import static com.hmdp.utils.RedisConstants.LIMIT_SECKILL_VOUCHER_KEY;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 14:30
+ * @description 秒杀准入控制 在任何库存操作之前拒绝多余的请求
+ * 1. 本节点令牌桶：挡住超出单节点处理能力的流量，不访问 redis
+ * 2. 全局并发上限：同时进入下单流程的请求数
+ * 3. redis-lua 滑动窗口：按用户、按优惠券限流，多节点共享
+ */
+@Component
+public class SeckillAdmissionControl {
+
+    private static final DefaultRedisScript<Long> RATE_LIMIT_SCRIPT;
+    static {
+        RATE_LIMIT_SCRIPT = new DefaultRedisScript<>();
+        RATE_LIMIT_SCRIPT.setLocation(new ClassPathResource("rate_limit.lua"));
+        RATE_LIMIT_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // 本节点每秒放行的请求数
+    @Value("${hmdp.seckill.limit.node-permits-per-second:2000}")
+    private long nodePermitsPerSecond;
+    // 同时进入下单流程的最大请求数
+    @Value("${hmdp.seckill.limit.max-concurrency:200}")
+    private int maxConcurrency;
+    // 滑动窗口大小(毫秒)
+    @Value("${hmdp.seckill.limit.window-millis:1000}")
+    private long windowMillis;
+    // 每个用户在窗口内的请求上限
+    @Value("${hmdp.seckill.limit.user-permits:3}")
+    private long userPermits;
+    // 每张优惠券在窗口内的请求上限
+    @Value("${hmdp.seckill.limit.voucher-permits:5000}")
+    private long voucherPermits;
+
+    private TokenBucket tokenBucket;
+    private Semaphore concurrency;
+
+    public SeckillAdmissionControl(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        tokenBucket = new TokenBucket(nodePermitsPerSecond, nodePermitsPerSecond);
+        concurrency = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * 尝试准入，成功后必须调用 {@link #release()}
+     * @param voucherId 优惠券id
+     * @param userId 用户id
+     * @return null：放行；否则为拒绝原因
+     */
+    public String tryAcquire(Long voucherId, Long userId) {
+        // 1. 本节点令牌桶
+        if (!tokenBucket.tryAcquire()) {
+            return "当前抢购人数过多，请稍后重试";
+        }
+        // 2. 全局并发上限
+        if (!concurrency.tryAcquire()) {
+            return "当前抢购人数过多，请稍后重试";
+        }
+        // 3. 用户、优惠券滑动窗口，没有放行(包括 redis 异常)时归还并发名额
+        boolean passed = false;
+        try {
+            Long r = stringRedisTemplate.execute(RATE_LIMIT_SCRIPT,
+                    Arrays.asList(LIMIT_SECKILL_USER_KEY + userId, LIMIT_SECKILL_VOUCHER_KEY + voucherId),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(windowMillis),
+                    String.valueOf(userPermits), String.valueOf(voucherPermits), IdUtil.fastSimpleUUID());
+            if (r == null || r != 0) {
+                return r != null && r == 1 ? "请求过于频繁，请稍后重试" : "当前抢购人数过多，请稍后重试";
+            }
+            passed = true;
+            return null;
+        } finally {
+            if (!passed) {
+                concurrency.release();
+            }
+        }
+    }
+
+    /**
+     * 释放并发名额
+     */
+    public void release() {
+        concurrency.release();
+    }
+}
@@ -0,0 +1,270 @@
+package com.hmdp.utils;
+
+import com.hmdp.dto.Result;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.service.ISeckillVoucherService;
+import com.hmdp.service.IVoucherOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 11:05
+ * @description 秒杀下单组提交
+ * 同步下单时每个请求都单独执行 stock = stock - 1，所有请求都在同一行锁上排队。
+ * 这里把几毫秒内同一张券的下单请求攒成一批，一个事务里只扣减一次 stock = stock - n 并批量插入订单，
+ * 提交后再把结果分发给等待的调用线程。
+ * 调用线程等待超时时撤销还在队列中的请求，保证返回失败的请求之后不会再下单；
+ * 已经进入事务的请求无法撤销，返回处理中，由用户查询订单状态
+ */
+@Slf4j
+@Component
+public class SeckillOrderBatcher {
+
+    // 攒批的时间窗口
+    private static final long BATCH_WINDOW_MS = 5L;
+    // 每批最多处理的请求数
+    private static final int MAX_BATCH_SIZE = 500;
+    // 调用线程等待结果的超时时间
+    private static final long WAIT_TIMEOUT_MS = 3000L;
+    // 请求状态：等待处理、已被批次取走、已被调用线程撤销
+    private static final int PENDING = 0;
+    private static final int CLAIMED = 1;
+    private static final int ABANDONED = 2;
+
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+    @Resource
+    private SnowflakeIdWorker snowflakeIdWorker;
+    @Resource
+    private TransactionTemplate transactionTemplate;
+    @Resource
+    private SeckillVoucherRegistry seckillVoucherRegistry;
+
+    private final BlockingQueue<OrderRequest> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "seckill-order-batcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean running = true;
+
+    private static class OrderRequest {
+        private final Long voucherId;
+        private final Long userId;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        OrderRequest(Long voucherId, Long userId) {
+            this.voucherId = voucherId;
+            this.userId = userId;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        flushExecutor.submit(this::flushLoop);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        flushExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交下单请求并等待本批次的结果
+     * @param voucherId 优惠券id
+     * @param userId 用户id
+     * @return 订单id 或失败原因
+     */
+    public Result submit(Long voucherId, Long userId) {
+        OrderRequest request = new OrderRequest(voucherId, userId);
+        queue.offer(request);
+        try {
+            return request.future.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 还没被批次取走时撤销，批次不会再处理它
+            if (request.state.compareAndSet(PENDING, ABANDONED)) {
+                return Result.fail("系统繁忙，请稍后重试");
+            }
+            // 已经在事务中，再等一个超时时间，仍没有结果时订单可能已经创建
+            try {
+                return request.future.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | InterruptedException | ExecutionException ex) {
+                if (ex instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                return Result.fail("订单处理中，请稍后查询订单状态");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (request.state.compareAndSet(PENDING, ABANDONED)) {
+                return Result.fail("系统繁忙，请稍后重试");
+            }
+            return Result.fail("订单处理中，请稍后查询订单状态");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void flushLoop() {
+        List<OrderRequest> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running) {
+            try {
+                // 1. 阻塞等待第一个请求
+                batch.add(queue.take());
+                // 2. 等待一个时间窗口，攒更多请求
+                Thread.sleep(BATCH_WINDOW_MS);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                // 取走请求，已被调用线程撤销的跳过
+                batch.removeIf(r -> !r.state.compareAndSet(PENDING, CLAIMED));
+                // 3. 按优惠券分组，每组一个事务
+                Map<Long, List<OrderRequest>> groups = batch.stream()
+                        .collect(Collectors.groupingBy(r -> r.voucherId, LinkedHashMap::new, Collectors.toList()));
+                groups.forEach(this::commitGroup);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("秒杀组提交异常", e);
+                batch.forEach(r -> r.future.complete(Result.fail("服务器异常")));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中处理同一张券的一批请求
+     * 一人一单由 (user_id, voucher_id) 唯一索引兜底：批量插入冲突时整个事务回滚，再逐条插入重做一次
+     */
+    private void commitGroup(Long voucherId, List<OrderRequest> requests) {
+        Map<OrderRequest, Result> results = new HashMap<>(requests.size() * 2);
+        try {
+            try {
+                commitGroup(voucherId, requests, results, false);
+            } catch (DuplicateKeyException e) {
+                log.warn("秒杀组提交订单重复，逐条重试, voucherId = {}", voucherId);
+                commitGroup(voucherId, requests, results, true);
+            }
+        } catch (Exception e) {
+            log.error("秒杀组提交失败, voucherId = {}", voucherId, e);
+            requests.forEach(r -> r.future.complete(Result.fail("服务器异常")));
+            return;
+        }
+        // 7. 事务提交后同步 redis 库存、添加超时取消任务，再把结果交给等待的调用线程
+        List<Long> orderIds = results.values().stream()
+                .filter(Result::getSuccess).map(r -> (Long) r.getData())
+                .collect(Collectors.toList());
+        try {
+            voucherOrderService.afterOrdersCommitted(voucherId, orderIds);
+        } catch (Exception e) {
+            log.error("订单提交后处理失败, voucherId = {}", voucherId, e);
+        }
+        requests.forEach(r -> r.future.complete(results.get(r)));
+    }
+
+    /**
+     * @param oneByOne 是否逐条插入订单
+     */
+    private void commitGroup(Long voucherId, List<OrderRequest> requests,
+                             Map<OrderRequest, Result> results, boolean oneByOne) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            results.clear();
+            // 1. 一人一单：同一批次内同一用户只保留第一个请求
+            Map<Long, OrderRequest> candidates = new LinkedHashMap<>();
+            for (OrderRequest request : requests) {
+                if (candidates.putIfAbsent(request.userId, request) != null) {
+                    results.put(request, Result.fail("用户已经购买过了，每个用户仅限一单"));
+                }
+            }
+            // 2. 先锁住库存行，同一张券的批次在这里排队，之后读到的订单包含前一个批次已提交的
+            SeckillVoucher voucher = seckillVoucherService.query()
+                    .eq("voucher_id", voucherId).last("for update").one();
+            int stock = voucher == null ? 0 : voucher.getStock();
+
+            // 3. 一人一单：一次查询排除已经下过单的用户
+            List<VoucherOrder> exists = voucherOrderService.query()
+                    .select("user_id")
+                    .eq("voucher_id", voucherId).in("user_id", candidates.keySet()).list();
+            for (VoucherOrder order : exists) {
+                OrderRequest request = candidates.remove(order.getUserId());
+                results.put(request, Result.fail("用户已经购买过了，每个用户仅限一单"));
+            }
+            if (candidates.isEmpty()) {
+                return;
+            }
+
+            // 4. 计算本批次能分到的数量，为抢到的用户创建订单，其余返回库存不足
+            int granted = Math.min(stock, candidates.size());
+            if (granted < candidates.size()) {
+                // 库存已扣完，本节点之后的请求不再进入批次
+                seckillVoucherRegistry.markSoldOut(voucherId);
+            }
+            Map<OrderRequest, VoucherOrder> orders = new LinkedHashMap<>(granted * 2);
+            for (OrderRequest request : candidates.values()) {
+                if (orders.size() >= granted) {
+                    results.put(request, Result.fail("库存不足"));
+                    continue;
+                }
+                VoucherOrder voucherOrder = new VoucherOrder();
+                voucherOrder.setId(snowflakeIdWorker.nextId("order"));
+                voucherOrder.setUserId(request.userId);
+                voucherOrder.setVoucherId(voucherId);
+                orders.put(request, voucherOrder);
+            }
+
+            // 5. 插入订单
+            int created = saveOrders(tx, orders, results, oneByOne);
+
+            // 6. 整批只扣减一次库存
+            if (created > 0) {
+                seckillVoucherService.update()
+                        .setSql("stock = stock - " + created)
+                        .eq("voucher_id", voucherId).ge("stock", created)
+                        .update();
+            }
+        });
+    }
+
+    /**
+     * 插入订单并记录结果，返回插入成功的订单数
+     * @param oneByOne 逐条插入，(user_id, voucher_id) 唯一索引冲突的请求回滚到保存点并返回已经购买过
+     */
+    private int saveOrders(TransactionStatus tx, Map<OrderRequest, VoucherOrder> orders,
+                           Map<OrderRequest, Result> results, boolean oneByOne) {
+        if (!oneByOne) {
+            voucherOrderService.saveBatch(orders.values());
+            orders.forEach((request, order) -> results.put(request, Result.ok(order.getId())));
+            return orders.size();
+        }
+        int created = 0;
+        for (Map.Entry<OrderRequest, VoucherOrder> entry : orders.entrySet()) {
+            Object savepoint = tx.createSavepoint();
+            try {
+                voucherOrderService.save(entry.getValue());
+                results.put(entry.getKey(), Result.ok(entry.getValue().getId()));
+                created++;
+            } catch (DuplicateKeyException e) {
+                tx.rollbackToSavepoint(savepoint);
+                results.put(entry.getKey(), Result.fail("用户已经购买过了，每个用户仅限一单"));
+            }
+        }
+        return created;
+    }
+}
@@ -0,0 +1,263 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.service.ISeckillVoucherService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_STOCK_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_VOUCHER_KEY;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 10:12
+ * @description 秒杀券元数据注册表
+ * 新增秒杀券时把开始/结束时间发布到 redis 和本地不可变注册表，由调度器在开始、结束时间切换状态，
+ * 抢购时判断时间窗口只读本地内存，不再查询数据库；
+ * 扣减库存失败(影响 0 行)后在本地标记售罄，不存在的券id在本地短时间负缓存，这两类请求都不再访问数据库和 redis
+ */
+@Slf4j
+@Component
+public class SeckillVoucherRegistry {
+
+    /**
+     * 秒杀券状态
+     */
+    public enum Status {
+        NOT_FOUND, NOT_STARTED, ACTIVE, ENDED
+    }
+
+    /**
+     * 秒杀券元数据 不可变
+     */
+    public static final class SeckillVoucherMeta {
+        private final Long voucherId;
+        private final long beginTime; // 毫秒时间戳
+        private final long endTime;
+
+        public SeckillVoucherMeta(Long voucherId, long beginTime, long endTime) {
+            this.voucherId = voucherId;
+            this.beginTime = beginTime;
+            this.endTime = endTime;
+        }
+
+        public Long getVoucherId() {
+            return voucherId;
+        }
+
+        public long getBeginTime() {
+            return beginTime;
+        }
+
+        public long getEndTime() {
+            return endTime;
+        }
+    }
+
+    // 负缓存最多记录的券id数，超过后清空，防止随机id撑大内存
+    private static final int MAX_NOT_FOUND_SIZE = 10000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+
+    // 售罄标记的有效期(毫秒)，到期后重新尝试扣减，以便看到其他节点取消订单归还的库存
+    @Value("${hmdp.seckill.sold-out-ttl-millis:1000}")
+    private long soldOutTtlMillis;
+    // 不存在的券id负缓存的有效期(毫秒)
+    @Value("${hmdp.seckill.not-found-ttl-millis:5000}")
+    private long notFoundTtlMillis;
+
+    // 写时复制：读线程只读 volatile 引用，不加锁；写入由 synchronized 方法整体替换
+    private volatile Map<Long, SeckillVoucherMeta> metas = Collections.emptyMap();
+    private volatile Map<Long, Status> states = Collections.emptyMap();
+    // 售罄标记、不存在的券id：券id -> 失效时间
+    private final Map<Long, Long> soldOutUntil = new ConcurrentHashMap<>();
+    private final Map<Long, Long> notFoundUntil = new ConcurrentHashMap<>();
+
+    // 负责在开始、结束时间切换状态的调度线程
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "seckill-voucher-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SeckillVoucherRegistry(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 启动时从数据库加载尚未结束的秒杀券，只注册到本地，不覆盖 redis 中的库存
+     */
+    @PostConstruct
+    public void init() {
+        List<SeckillVoucher> vouchers = seckillVoucherService.query()
+                .gt("end_time", LocalDateTime.now()).list();
+        for (SeckillVoucher voucher : vouchers) {
+            register(toMeta(voucher));
+        }
+        log.debug("加载秒杀券元数据 {} 条", vouchers.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 新增秒杀券时调用：写入 redis(元数据 + 库存) 并注册到本地
+     * @param voucher 秒杀券
+     */
+    public void publish(SeckillVoucher voucher) {
+        SeckillVoucherMeta meta = toMeta(voucher);
+        String key = SECKILL_VOUCHER_KEY + voucher.getVoucherId();
+        Map<String, String> map = new HashMap<>(4);
+        map.put("beginTime", String.valueOf(meta.getBeginTime()));
+        map.put("endTime", String.valueOf(meta.getEndTime()));
+        map.put("stock", String.valueOf(voucher.getStock()));
+        stringRedisTemplate.opsForHash().putAll(key, map);
+        // 秒杀结束一天后元数据自动过期
+        stringRedisTemplate.expireAt(key, new Date(meta.getEndTime() + TimeUnit.DAYS.toMillis(1)));
+        // 库存
+        stringRedisTemplate.opsForValue().set(SECKILL_STOCK_KEY + voucher.getVoucherId(), voucher.getStock().toString());
+
+        notFoundUntil.remove(voucher.getVoucherId());
+        soldOutUntil.remove(voucher.getVoucherId());
+        register(meta);
+    }
+
+    /**
+     * 查询秒杀券当前状态 纯内存读取
+     * 本地不存在时(其他节点新增的券)从 redis 加载一次，redis 中也不存在时负缓存一段时间
+     * @param voucherId 优惠券id
+     * @return 状态
+     */
+    public Status getStatus(Long voucherId) {
+        Status status = states.get(voucherId);
+        if (status != null) {
+            return status;
+        }
+        long now = System.currentTimeMillis();
+        Long until = notFoundUntil.get(voucherId);
+        if (until != null && now < until) {
+            return Status.NOT_FOUND;
+        }
+        SeckillVoucherMeta meta = loadFromRedis(voucherId);
+        if (meta == null) {
+            if (notFoundUntil.size() >= MAX_NOT_FOUND_SIZE) {
+                notFoundUntil.clear();
+            }
+            notFoundUntil.put(voucherId, now + notFoundTtlMillis);
+            return Status.NOT_FOUND;
+        }
+        notFoundUntil.remove(voucherId);
+        register(meta);
+        return states.getOrDefault(voucherId, Status.NOT_FOUND);
+    }
+
+    /**
+     * 本节点是否已标记售罄
+     */
+    public boolean isSoldOut(Long voucherId) {
+        Long until = soldOutUntil.get(voucherId);
+        return until != null && System.currentTimeMillis() < until;
+    }
+
+    /**
+     * 扣减库存影响 0 行时调用，有效期内的请求直接返回库存不足
+     */
+    public void markSoldOut(Long voucherId) {
+        soldOutUntil.put(voucherId, System.currentTimeMillis() + soldOutTtlMillis);
+    }
+
+    /**
+     * 库存归还时调用
+     */
+    public void clearSoldOut(Long voucherId) {
+        soldOutUntil.remove(voucherId);
+    }
+
+    public SeckillVoucherMeta getMeta(Long voucherId) {
+        return metas.get(voucherId);
+    }
+
+    private SeckillVoucherMeta loadFromRedis(Long voucherId) {
+        Map<Object, Object> map = stringRedisTemplate.opsForHash().entries(SECKILL_VOUCHER_KEY + voucherId);
+        String begin = (String) map.get("beginTime");
+        String end = (String) map.get("endTime");
+        if (StrUtil.isBlank(begin) || StrUtil.isBlank(end)) {
+            return null;
+        }
+        return new SeckillVoucherMeta(voucherId, Long.parseLong(begin), Long.parseLong(end));
+    }
+
+    /**
+     * 注册到本地并安排开始、结束时的状态切换
+     */
+    private synchronized void register(SeckillVoucherMeta meta) {
+        Long voucherId = meta.getVoucherId();
+        Map<Long, SeckillVoucherMeta> newMetas = new HashMap<>(metas);
+        newMetas.put(voucherId, meta);
+        metas = Collections.unmodifiableMap(newMetas);
+
+        long now = System.currentTimeMillis();
+        if (now >= meta.getEndTime()) {
+            updateState(voucherId, Status.ENDED);
+            return;
+        }
+        if (now < meta.getBeginTime()) {
+            updateState(voucherId, Status.NOT_STARTED);
+            scheduler.schedule(() -> activate(meta), meta.getBeginTime() - now, TimeUnit.MILLISECONDS);
+        } else {
+            updateState(voucherId, Status.ACTIVE);
+        }
+        scheduler.schedule(() -> deactivate(meta), meta.getEndTime() - now, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void activate(SeckillVoucherMeta meta) {
+        // 券被重新发布过(时间变了)则忽略旧的调度
+        if (metas.get(meta.getVoucherId()) != meta) {
+            return;
+        }
+        updateState(meta.getVoucherId(), Status.ACTIVE);
+        log.debug("秒杀券 {} 开始", meta.getVoucherId());
+    }
+
+    private synchronized void deactivate(SeckillVoucherMeta meta) {
+        if (metas.get(meta.getVoucherId()) != meta) {
+            return;
+        }
+        updateState(meta.getVoucherId(), Status.ENDED);
+        log.debug("秒杀券 {} 结束", meta.getVoucherId());
+    }
+
+    private void updateState(Long voucherId, Status status) {
+        Map<Long, Status> newStates = new HashMap<>(states);
+        newStates.put(voucherId, status);
+        states = Collections.unmodifiableMap(newStates);
+    }
+
+    private static SeckillVoucherMeta toMeta(SeckillVoucher voucher) {
+        return new SeckillVoucherMeta(voucher.getVoucherId(),
+                toEpochMilli(voucher.getBeginTime()), toEpochMilli(voucher.getEndTime()));
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,141 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/20 02:40
+ * @description 游标(seek)分页
+ * 游标中保存上一页最后一条的排序字段和 id，下一页用 WHERE (排序字段, id) < (?, ?) 从索引上直接定位，
+ * 不使用 LIMIT offset，翻到多深都只扫描一页的数据；游标对前端不透明(base64url)，只需原样传回
+ * 排序字段可以为 NULL：与 MySQL 一致，NULL 升序时排在最前、降序时排在最后
+ */
+public final class SeekCursor {
+
+    private static final char SEPARATOR = ',';
+    private static final String NULL = "~";
+
+    private SeekCursor() {
+    }
+
+    /**
+     * 生成游标
+     * @param values 上一页最后一条的排序字段，最后一个一般为 id；值中不能包含逗号
+     */
+    public static String encode(Object... values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(values[i] == null ? NULL : values[i].toString());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     * @param cursor 游标
+     * @param size 排序字段的个数
+     * @return 排序字段，NULL 为 null；游标为空时返回 null(第一页)
+     * @throws IllegalArgumentException 游标格式错误
+     */
+    public static String[] decode(String cursor, int size) {
+        if (StrUtil.isBlank(cursor)) {
+            return null;
+        }
+        List<String> values;
+        try {
+            values = StrUtil.split(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8), SEPARATOR);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的游标");
+        }
+        if (values.size() != size) {
+            throw new IllegalArgumentException("无效的游标");
+        }
+        String[] result = new String[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = NULL.equals(values.get(i)) ? null : values.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 解析游标中的整数
+     * @param value decode 返回的排序字段
+     * @param nullable 是否允许为 NULL
+     * @throws IllegalArgumentException 游标被篡改(不是数字或不允许的 NULL)
+     */
+    public static Long toLong(String value, boolean nullable) {
+        return parse(value, nullable, Long::valueOf);
+    }
+
+    public static Integer toInteger(String value, boolean nullable) {
+        return parse(value, nullable, Integer::valueOf);
+    }
+
+    public static Double toDouble(String value, boolean nullable) {
+        Double d = parse(value, nullable, Double::valueOf);
+        if (d != null && (d.isNaN() || d.isInfinite())) {
+            throw new IllegalArgumentException("无效的游标");
+        }
+        return d;
+    }
+
+    private static <T> T parse(String value, boolean nullable, Function<String, T> parser) {
+        if (value == null) {
+            if (nullable) {
+                return null;
+            }
+            throw new IllegalArgumentException("无效的游标");
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的游标");
+        }
+    }
+
+    /**
+     * 只按 id 排序时的下一页条件
+     * @param lastId 上一页最后一条的 id，null 表示第一页
+     */
+    public static <T> QueryWrapper<T> seek(QueryWrapper<T> wrapper, Long lastId, boolean desc) {
+        if (lastId != null) {
+            if (desc) {
+                wrapper.lt("id", lastId);
+            } else {
+                wrapper.gt("id", lastId);
+            }
+        }
+        return desc ? wrapper.orderByDesc("id") : wrapper.orderByAsc("id");
+    }
+
+    /**
+     * 按 (column, id) 排序时的下一页条件
+     * @param column 排序字段的列名(不能来自用户输入)
+     * @param lastKey 上一页最后一条的排序字段
+     * @param lastId 上一页最后一条的 id，null 表示第一页
+     */
+    public static <T> QueryWrapper<T> seek(QueryWrapper<T> wrapper, String column, Object lastKey, Long lastId, boolean desc) {
+        if (lastId != null) {
+            String op = desc ? "<" : ">";
+            if (lastKey != null) {
+                // 降序时 NULL 在最后，还没有翻到
+                wrapper.and(w -> w.apply("(" + column + ", id) " + op + " ({0}, {1})", lastKey, lastId)
+                        .or(desc, o -> o.isNull(column)));
+            } else {
+                // 升序时 NULL 在最前，之后是全部非 NULL
+                wrapper.and(w -> w.nested(n -> n.isNull(column).apply("id " + op + " {0}", lastId))
+                        .or(!desc, o -> o.isNotNull(column)));
+            }
+        }
+        return desc ? wrapper.orderByDesc(column, "id") : wrapper.orderByAsc(column, "id");
+    }
+}
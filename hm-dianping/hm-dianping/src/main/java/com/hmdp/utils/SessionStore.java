@@ -0,0 +1,146 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.LOGIN_USER_KEY;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 23:30
+ * @description 登录态存储 token 的 hash 按一致性哈希分布到多个 redis 节点
+ * hmdp.session.nodes 配置节点列表(host:port,host:port)，每个节点单独一个连接工厂；
+ * 不配置时使用默认的 redis(spring.redis)。
+ * 增加节点时只有约 1/节点数 的 token 换到新节点，这部分用户需要重新登录，其他用户不受影响
+ */
+@Slf4j
+@Component
+public class SessionStore {
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // 登录态 redis 节点，逗号分隔
+    @Value("${hmdp.session.nodes:}")
+    private String nodes;
+    // 登录态 redis 节点的密码
+    @Value("${hmdp.session.password:${spring.redis.password:}}")
+    private String password;
+    // 每个节点的虚拟节点数
+    @Value("${hmdp.session.virtual-nodes:160}")
+    private int virtualNodes;
+
+    private ConsistentHashRouter<StringRedisTemplate> router;
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+
+    public SessionStore(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        router = new ConsistentHashRouter<>(virtualNodes);
+        if (StrUtil.isBlank(nodes)) {
+            router.addNode("default", stringRedisTemplate);
+            return;
+        }
+        for (String node : StrUtil.splitTrim(nodes, ',')) {
+            int i = node.lastIndexOf(':');
+            RedisStandaloneConfiguration config = i > 0
+                    ? new RedisStandaloneConfiguration(node.substring(0, i), Integer.parseInt(node.substring(i + 1)))
+                    : new RedisStandaloneConfiguration(node);
+            if (StrUtil.isNotEmpty(password)) {
+                config.setPassword(RedisPassword.of(password));
+            }
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(config);
+            factory.afterPropertiesSet();
+            connectionFactories.add(factory);
+            router.addNode(node, new StringRedisTemplate(factory));
+        }
+        log.info("登录态分布在 {} 个 redis 节点：{}", connectionFactories.size(), nodes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    /**
+     * 保存登录用户并设置有效期，一次往返
+     */
+    public void save(String token, Map<String, Object> userMap, long ttlMinutes) {
+        byte[] key = key(token);
+        Map<byte[], byte[]> hash = new HashMap<>(userMap.size() * 2);
+        userMap.forEach((field, value) -> hash.put(bytes(field), bytes(value.toString())));
+        route(token).executePipelined((RedisCallback<Object>) connection -> {
+            connection.hMSet(key, hash);
+            connection.expire(key, TimeUnit.MINUTES.toSeconds(ttlMinutes));
+            return null;
+        });
+    }
+
+    /**
+     * 查询登录用户
+     * @return 不存在时返回空 map
+     */
+    public Map<Object, Object> entries(String token) {
+        return route(token).opsForHash().entries(LOGIN_USER_KEY + token);
+    }
+
+    public void delete(String token) {
+        route(token).delete(LOGIN_USER_KEY + token);
+    }
+
+    /**
+     * 批量刷新有效期，按节点分组，每个节点一次 pipeline
+     * @return 与 tokens 顺序一致，token 不存在时为 false；节点异常时该节点的 token 为 true(结果未知，不当作已失效)
+     */
+    public boolean[] expire(List<String> tokens, long seconds) {
+        Map<StringRedisTemplate, List<Integer>> groups = new IdentityHashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            groups.computeIfAbsent(route(tokens.get(i)), t -> new ArrayList<>()).add(i);
+        }
+        boolean[] results = new boolean[tokens.size()];
+        groups.forEach((template, indexes) -> {
+            try {
+                List<Object> replies = template.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Integer i : indexes) {
+                        connection.expire(key(tokens.get(i)), seconds);
+                    }
+                    return null;
+                });
+                for (int j = 0; j < indexes.size(); j++) {
+                    results[indexes.get(j)] = Boolean.TRUE.equals(replies.get(j));
+                }
+            } catch (Exception e) {
+                log.error("批量刷新登录有效期失败", e);
+                indexes.forEach(i -> results[i] = true);
+            }
+        });
+        return results;
+    }
+
+    private StringRedisTemplate route(String token) {
+        return router.route(token);
+    }
+
+    private static byte[] key(String token) {
+        return bytes(LOGIN_USER_KEY + token);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,261 @@
+package com.hmdp.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 22:00
+ * @description 轻量 json 读写，配合 BeanMapper 使用，不经过反射
+ * 解析结果：对象为 Map，数组为 List，字符串、数字、布尔值都保留为字符串(由 BeanMapper 按属性类型转换)，null 为 null
+ */
+public final class SimpleJson {
+
+    private SimpleJson() {
+    }
+
+    /**
+     * 解析 json
+     * @throws IllegalArgumentException json 格式错误
+     */
+    public static Object parse(String json) {
+        Parser parser = new Parser(json);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != json.length()) {
+            throw parser.error("多余的字符");
+        }
+        return value;
+    }
+
+    /**
+     * 写入 json 字符串(带引号并转义)
+     */
+    public static void writeString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static class Parser {
+        private final String json;
+        private int pos;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        Object readValue() {
+            skipWhitespace();
+            if (pos >= json.length()) {
+                throw error("json 不完整");
+            }
+            char c = json.charAt(pos);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 'n':
+                    expect("null");
+                    return null;
+                case 't':
+                    expect("true");
+                    return "true";
+                case 'f':
+                    expect("false");
+                    return "false";
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("对象的 key 必须是字符串");
+                }
+                String key = readString();
+                skipWhitespace();
+                if (peek() != ':') {
+                    throw error("缺少 ':'");
+                }
+                pos++;
+                map.put(key, readValue());
+                skipWhitespace();
+                char c = peek();
+                pos++;
+                if (c == '}') {
+                    return map;
+                }
+                if (c != ',') {
+                    throw error("缺少 ',' 或 '}'");
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(readValue());
+                skipWhitespace();
+                char c = peek();
+                pos++;
+                if (c == ']') {
+                    return list;
+                }
+                if (c != ',') {
+                    throw error("缺少 ',' 或 ']'");
+                }
+            }
+        }
+
+        private String readString() {
+            pos++;
+            int start = pos;
+            // 没有转义字符时直接截取
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (c == '"') {
+                    return json.substring(start, pos++);
+                }
+                if (c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            StringBuilder sb = new StringBuilder(json.substring(start, pos));
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= json.length()) {
+                    break;
+                }
+                char e = json.charAt(pos++);
+                switch (e) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > json.length()) {
+                            throw error("unicode 转义不完整");
+                        }
+                        sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        // \" \\ \/
+                        sb.append(e);
+                }
+            }
+            throw error("字符串没有结束");
+        }
+
+        private String readNumber() {
+            int start = pos;
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            if (start == pos) {
+                throw error("非法字符");
+            }
+            return json.substring(start, pos);
+        }
+
+        private void expect(String word) {
+            if (!json.startsWith(word, pos)) {
+                throw error("非法字符");
+            }
+            pos += word.length();
+        }
+
+        private char peek() {
+            if (pos >= json.length()) {
+                throw error("json 不完整");
+            }
+            return json.charAt(pos);
+        }
+
+        void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + "，位置：" + pos);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.hmdp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 23:55
+ * @description 短信验证码异步发送
+ * 1. redis-lua 一次往返完成：检查发送间隔和每日上限、保存验证码
+ * 2. 短信放进本地有界队列后立即返回，请求线程不等待短信网关
+ * 3. 后台线程攒批(达到批量大小或等待超过 linger)后交给发送线程池调用 SmsSender；
+ *    发送线程都忙时由攒批线程自己发送，队列随之积压，队列满后新的请求直接失败，
+ *    并撤销本次的发送间隔和当日次数(undo_send_code.lua)
+ */
+@Slf4j
+@Component
+public class SmsCodeDispatcher {
+
+    private static final DefaultRedisScript<Long> SEND_CODE_SCRIPT;
+    private static final DefaultRedisScript<Long> UNDO_SEND_CODE_SCRIPT;
+    static {
+        SEND_CODE_SCRIPT = new DefaultRedisScript<>();
+        SEND_CODE_SCRIPT.setLocation(new ClassPathResource("send_code.lua"));
+        SEND_CODE_SCRIPT.setResultType(Long.class);
+        UNDO_SEND_CODE_SCRIPT = new DefaultRedisScript<>();
+        UNDO_SEND_CODE_SCRIPT.setLocation(new ClassPathResource("undo_send_code.lua"));
+        UNDO_SEND_CODE_SCRIPT.setResultType(Long.class);
+    }
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private SmsSender smsSender;
+
+    // 同一手机号两次发送的最小间隔(秒)
+    @Value("${hmdp.sms.cooldown-seconds:60}")
+    private long cooldownSeconds;
+    // 同一手机号每天最多发送的次数
+    @Value("${hmdp.sms.daily-limit:10}")
+    private long dailyLimit;
+    // 待发送队列的容量
+    @Value("${hmdp.sms.queue-capacity:10000}")
+    private int queueCapacity;
+    // 每批最多发送的短信数
+    @Value("${hmdp.sms.batch-size:100}")
+    private int batchSize;
+    // 攒批的最长等待时间(毫秒)
+    @Value("${hmdp.sms.linger-millis:20}")
+    private long lingerMillis;
+    // 同时发送的批次数
+    @Value("${hmdp.sms.sender-threads:4}")
+    private int senderThreads;
+
+    private BlockingQueue<SmsSender.Message> queue;
+    private ExecutorService senderExecutor;
+    private final ExecutorService batcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sms-batcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SmsCodeDispatcher(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        senderExecutor = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "sms-sender");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        batcher.submit(this::runBatcher);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        batcher.shutdownNow();
+        senderExecutor.shutdown();
+    }
+
+    /**
+     * 保存验证码并放进发送队列
+     * @param phone 手机号
+     * @param code 验证码
+     * @return null：成功；否则为失败原因
+     */
+    public String send(String phone, String code) {
+        LocalDateTime now = LocalDateTime.now();
+        // 当日计数在次日零点后过期
+        long secondsToTomorrow = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay()).getSeconds() + 1;
+        List<String> keys = Arrays.asList(LOGIN_CODE_KEY + phone, SMS_COOLDOWN_KEY + phone,
+                SMS_DAILY_KEY + phone + ":" + now.format(DAY_FORMATTER));
+        Long r = stringRedisTemplate.execute(SEND_CODE_SCRIPT, keys,
+                code, String.valueOf(TimeUnit.MINUTES.toSeconds(LOGIN_CODE_TTL)), String.valueOf(cooldownSeconds),
+                String.valueOf(dailyLimit), String.valueOf(secondsToTomorrow));
+        if (r == null || r != 0) {
+            return r != null && r == 2 ? "今日发送次数已达上限" : "发送太频繁，请稍后再试";
+        }
+        if (!queue.offer(new SmsSender.Message(phone, "您的验证码为：" + code + "，" + LOGIN_CODE_TTL + "分钟内有效"))) {
+            // 没有发出去，允许马上重试，不占用当日次数
+            stringRedisTemplate.execute(UNDO_SEND_CODE_SCRIPT, keys, code);
+            return "短信服务繁忙，请稍后再试";
+        }
+        return null;
+    }
+
+    private void runBatcher() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<SmsSender.Message> batch = new ArrayList<>(batchSize);
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    SmsSender.Message message = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (message == null) {
+                        break;
+                    }
+                    batch.add(message);
+                }
+                senderExecutor.execute(() -> sendBatch(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("短信攒批失败", e);
+            }
+        }
+    }
+
+    private void sendBatch(List<SmsSender.Message> batch) {
+        try {
+            smsSender.send(batch);
+        } catch (Exception e) {
+            // 验证码已经保存，用户可以在发送间隔过后重新获取
+            log.error("发送短信失败，本批 {} 条", batch.size(), e);
+        }
+    }
+}
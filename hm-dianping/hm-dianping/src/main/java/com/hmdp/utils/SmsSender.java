@@ -0,0 +1,39 @@
+package com.hmdp.utils;
+
+import java.util.List;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 23:50
+ * @description 短信发送 对接短信网关时实现该接口并注册为 bean，同时把 hmdp.sms.sender 改为其他值以停用 LogSmsSender
+ */
+public interface SmsSender {
+
+    /**
+     * 批量发送短信，由 SmsCodeDispatcher 的发送线程调用，可以阻塞
+     * @param messages 本批短信
+     * @throws Exception 发送失败
+     */
+    void send(List<Message> messages) throws Exception;
+
+    /**
+     * 一条短信
+     */
+    class Message {
+        private final String phone;
+        private final String content;
+
+        public Message(String phone, String content) {
+            this.phone = phone;
+            this.content = content;
+        }
+
+        public String getPhone() {
+            return phone;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+}
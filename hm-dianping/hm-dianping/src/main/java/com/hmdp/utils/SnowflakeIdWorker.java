@@ -0,0 +1,169 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hmdp.utils.RedisConstants.ID_WORKER_KEY;
+import static com.hmdp.utils.RedisConstants.ID_WORKER_TTL;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 18:20
+ * @description 雪花算法id生成器，生成id时不访问网络
+ * id结构：符号位(1) + 毫秒时间戳(41) + workerId(10) + 毫秒内序列号(12)
+ * workerId 启动时在 redis 中用 SETNX 租用，后台定时续期；
+ * 时间戳和序列号合在一个 AtomicLong 里用 CAS 递增，时钟回拨或同一毫秒序列号用完时借用后面的毫秒，不会阻塞
+ */
+@Slf4j
+@Component
+public class SnowflakeIdWorker implements IdGenerator {
+
+    // 开始的时间戳(毫秒)，与 RedisIdWorker 相同：2022-01-01 00:00:00
+    private static final long BEGIN_TIMESTAMP = 1640995200000L;
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_WORKER_ID = (1 << WORKER_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // 本地认为租约有效的时间比 redis 中的少一些，留出续期的网络延迟和时钟误差
+    private static final long LEASE_SAFETY_MS = 5000L;
+
+    private static final DefaultRedisScript<Long> LEASE_SCRIPT;
+    static {
+        LEASE_SCRIPT = new DefaultRedisScript<>();
+        LEASE_SCRIPT.setLocation(new ClassPathResource("worker_lease.lua"));
+        LEASE_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    // 本节点标识，用于判断租约是否属于自己
+    private final String token = IdUtil.fastSimpleUUID();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "id-worker-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile Lease lease;
+
+    /**
+     * 一次 workerId 租约，换 workerId 时整体替换
+     */
+    private static class Lease {
+        private final long workerId;
+        // 时间戳(相对 BEGIN_TIMESTAMP) << SEQUENCE_BITS | 序列号
+        private final AtomicLong state;
+        private volatile long expireAt;
+
+        Lease(long workerId, long state, long expireAt) {
+            this.workerId = workerId;
+            this.state = new AtomicLong(state);
+            this.expireAt = expireAt;
+        }
+    }
+
+    public SnowflakeIdWorker(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        lease = acquire(0L);
+        long period = TimeUnit.SECONDS.toMillis(ID_WORKER_TTL) / 3;
+        heartbeat.scheduleWithFixedDelay(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * 生成id，所有业务共用一个序列，前缀不参与计算
+     * @param keyPrefix 业务前缀
+     * @return
+     */
+    @Override
+    public long nextId(String keyPrefix) {
+        Lease current = lease;
+        long nowMillis = System.currentTimeMillis();
+        if (nowMillis > current.expireAt) {
+            // 续期一直失败，workerId 可能已经被其他节点租走
+            throw new IllegalStateException("workerId 租约已过期: " + current.workerId);
+        }
+        long now = (nowMillis - BEGIN_TIMESTAMP) << SEQUENCE_BITS;
+        long prev, next;
+        do {
+            prev = current.state.get();
+            // 时钟回拨或序列号用完时 prev + 1 会进位到下一毫秒，保证单调递增
+            next = Math.max(prev + 1, now);
+        } while (!current.state.compareAndSet(prev, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return timestamp << (WORKER_ID_BITS + SEQUENCE_BITS) | current.workerId << SEQUENCE_BITS | sequence;
+    }
+
+    /**
+     * 租用一个空闲的 workerId
+     * @param minState 新租约的起始状态不能小于该值
+     */
+    private Lease acquire(long minState) {
+        int start = RandomUtil.randomInt(MAX_WORKER_ID + 1);
+        for (int i = 0; i <= MAX_WORKER_ID; i++) {
+            int workerId = (start + i) & MAX_WORKER_ID;
+            String key = ID_WORKER_KEY + workerId;
+            Boolean success = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(key, token, ID_WORKER_TTL, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(success)) {
+                continue;
+            }
+            // 上一个持有者在租约到期前可能一直在发号，从它记录的时间再往后一个租约周期开始
+            long now = System.currentTimeMillis();
+            long begin = now;
+            String used = stringRedisTemplate.opsForValue().get(key + ":ts");
+            if (used != null) {
+                begin = Math.max(begin, Long.parseLong(used) + TimeUnit.SECONDS.toMillis(ID_WORKER_TTL));
+            }
+            long state = Math.max(minState, (begin - BEGIN_TIMESTAMP) << SEQUENCE_BITS);
+            log.info("租用 workerId = {}", workerId);
+            return new Lease(workerId, state, now + TimeUnit.SECONDS.toMillis(ID_WORKER_TTL) - LEASE_SAFETY_MS);
+        }
+        throw new IllegalStateException("没有空闲的 workerId");
+    }
+
+    /**
+     * 续期租约，并记录已经用到的时间；租约丢失时换一个 workerId
+     */
+    private void renew() {
+        Lease current = lease;
+        try {
+            long now = System.currentTimeMillis();
+            long used = (current.state.get() >>> SEQUENCE_BITS) + BEGIN_TIMESTAMP;
+            String key = ID_WORKER_KEY + current.workerId;
+            Long result = stringRedisTemplate.execute(LEASE_SCRIPT, Arrays.asList(key, key + ":ts"),
+                    token, String.valueOf(ID_WORKER_TTL), String.valueOf(used));
+            if (result != null && result == 1) {
+                current.expireAt = now + TimeUnit.SECONDS.toMillis(ID_WORKER_TTL) - LEASE_SAFETY_MS;
+                return;
+            }
+            log.warn("workerId = {} 的租约已丢失，重新租用", current.workerId);
+            current.expireAt = 0L;
+            lease = acquire(current.state.get());
+        } catch (Exception e) {
+            log.error("workerId = {} 续期失败", current.workerId, e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.hmdp.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 16:02
+ * @description 单层时间轮
+ * 把延时任务按到期的 tick 放进环形数组的槽里，每个 tick 只检查当前槽，
+ * 添加和触发都是 O(1)，超过一圈的任务靠 targetTick 比较留到后面的圈再触发
+ */
+public class TimingWheel {
+
+    private static class Entry {
+        private final long targetTick;
+        private final Runnable task;
+
+        Entry(long targetTick, Runnable task) {
+            this.targetTick = targetTick;
+            this.task = task;
+        }
+    }
+
+    private final long tickMs;
+    private final List<List<Entry>> buckets;
+    // 到期任务交给该线程池执行，不阻塞时间轮线程
+    private final Executor executor;
+    private final ScheduledExecutorService ticker;
+    private long currentTick;
+
+    /**
+     * @param name 线程名
+     * @param tickMs 每个 tick 的毫秒数
+     * @param wheelSize 槽数量
+     * @param executor 执行到期任务的线程池
+     */
+    public TimingWheel(String name, long tickMs, int wheelSize, Executor executor) {
+        this.tickMs = tickMs;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.executor = executor;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 添加延时任务
+     * @param task 任务
+     * @param delayMs 延时毫秒数，<=0 时在下一个 tick 执行
+     */
+    public synchronized void schedule(Runnable task, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        long targetTick = currentTick + ticks;
+        buckets.get((int) (targetTick % buckets.size())).add(new Entry(targetTick, task));
+    }
+
+    private synchronized void tick() {
+        currentTick++;
+        List<Entry> bucket = buckets.get((int) (currentTick % buckets.size()));
+        Iterator<Entry> it = bucket.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.targetTick <= currentTick) {
+                it.remove();
+                executor.execute(entry.task);
+            }
+        }
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+    }
+}
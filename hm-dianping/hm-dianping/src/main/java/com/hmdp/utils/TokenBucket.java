@@ -0,0 +1,45 @@
+package com.hmdp.utils;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 14:20
+ * @description 本地令牌桶 按固定速率补充令牌，桶满后不再增加
+ */
+public class TokenBucket {
+    // 桶容量(允许的突发请求数)
+    private final long capacity;
+    // 每纳秒补充的令牌数
+    private final double refillPerNanos;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param capacity 桶容量
+     */
+    public TokenBucket(long permitsPerSecond, long capacity) {
+        this.capacity = capacity;
+        this.refillPerNanos = permitsPerSecond / 1_000_000_000D;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取一个令牌，不等待
+     * @return true：获取成功
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        // 1. 按流逝的时间补充令牌
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNanos);
+        lastRefillNanos = now;
+        // 2. 令牌不足
+        if (tokens < 1) {
+            return false;
+        }
+        // 3. 消耗一个令牌
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+package com.hmdp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.LOGIN_REVOKED_CHANNEL;
+import static com.hmdp.utils.RedisConstants.LOGIN_REVOKED_KEY;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 21:25
+ * @description 已吊销的签名令牌
+ * redis 中用 zset 保存(member：令牌id，score：令牌过期时间)，吊销时通过 pub/sub 通知所有节点，
+ * 每个节点在本地保存一份未过期的令牌id，校验时不访问 redis；定时从 zset 全量同步，防止漏掉消息
+ */
+@Slf4j
+@Component
+public class TokenRevocationList {
+
+    // 全量同步的间隔(秒)
+    private static final long SYNC_INTERVAL_SECONDS = 60L;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    // 令牌id -> 过期时间
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "token-revocation-sync");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean started;
+
+    public TokenRevocationList(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 订阅吊销消息并开始定时同步，只在签名令牌模式下调用
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            // 消息格式：令牌id:过期时间
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int i = body.lastIndexOf(':');
+            if (i > 0) {
+                revoked.put(body.substring(0, i), Long.parseLong(body.substring(i + 1)));
+            }
+        }, new ChannelTopic(LOGIN_REVOKED_CHANNEL));
+        sync();
+        syncer.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_SECONDS, SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        syncer.shutdownNow();
+    }
+
+    /**
+     * 吊销令牌
+     * @param tokenId 令牌id
+     * @param expireAt 令牌过期时间，过期后自动从吊销列表中移除
+     */
+    public void revoke(String tokenId, long expireAt) {
+        revoked.put(tokenId, expireAt);
+        stringRedisTemplate.opsForZSet().add(LOGIN_REVOKED_KEY, tokenId, expireAt);
+        stringRedisTemplate.convertAndSend(LOGIN_REVOKED_CHANNEL, tokenId + ":" + expireAt);
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    /**
+     * 从 zset 全量同步未过期的令牌，并清理已过期的
+     */
+    private void sync() {
+        try {
+            long now = System.currentTimeMillis();
+            stringRedisTemplate.opsForZSet().removeRangeByScore(LOGIN_REVOKED_KEY, 0, now);
+            Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                    .rangeByScoreWithScores(LOGIN_REVOKED_KEY, now, Double.MAX_VALUE);
+            if (tuples != null) {
+                for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                    if (tuple.getValue() != null && tuple.getScore() != null) {
+                        revoked.put(tuple.getValue(), tuple.getScore().longValue());
+                    }
+                }
+            }
+            revoked.values().removeIf(expireAt -> expireAt <= now);
+        } catch (Exception e) {
+            log.error("同步吊销列表失败", e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.User;
+import com.hmdp.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.hmdp.utils.RedisConstants.*;
+
+/**
+ * @author ZC_Wu 汐
+ * @date 2026/10/19 23:00
+ * @description 手机号 -> 用户id 索引，登录时不需要按手机号查询用户表
+ * 1. redis 中按手机号分桶保存在多个小 hash 里(user:phone:{桶})，每个 hash 的字段数少，redis 使用紧凑编码，省内存
+ * 2. 本地短时间缓存查询结果，包括"不存在"的结果(负缓存)
+ * 3. 注册时写入索引，存量用户由回填任务按主键分页写入，回填完成后 redis 未命中即可认为用户不存在
+ * 4. 定期检查回填完成标记，标记丢失(redis 数据丢失)时改回查询数据库并重新回填
+ * 索引只是加速，手机号在用户表上有唯一索引，并发注册或索引丢失时由唯一索引兜底
+ */
+@Slf4j
+@Component
+public class UserPhoneIndex {
+
+    // 本地缓存的最大条数，超过后清空
+    private static final int MAX_LOCAL_ENTRIES = 100000;
+    // 回填锁的过期时间(分钟)，防止节点宕机后无法再次回填
+    private static final long BACKFILL_LOCK_TTL = 30L;
+    // 负缓存的用户id
+    private static final long ABSENT = 0L;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+    static {
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unlock.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private UserMapper userMapper;
+
+    // 分桶数量
+    @Value("${hmdp.user.phone-index.buckets:4096}")
+    private int buckets;
+    // 本地缓存的有效期(毫秒)
+    @Value("${hmdp.user.phone-index.local-ttl-millis:30000}")
+    private long localTtlMillis;
+    // 回填时每页的用户数
+    @Value("${hmdp.user.phone-index.backfill-batch-size:1000}")
+    private int backfillBatchSize;
+    // 启动时以及发现回填完成标记丢失时是否自动回填
+    @Value("${hmdp.user.phone-index.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+    // 检查回填完成标记的间隔(毫秒)
+    @Value("${hmdp.user.phone-index.ready-check-millis:5000}")
+    private long readyCheckMillis;
+
+    private final Map<String, Entry> local = new ConcurrentHashMap<>();
+    // 最近一次检查时回填是否已完成
+    private volatile boolean complete;
+    private volatile long completeCheckedAt;
+    // 本节点是否有回填任务在排队或执行
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "user-phone-backfill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class Entry {
+        private final long userId;
+        private final long expireAt;
+
+        Entry(long userId, long expireAt) {
+            this.userId = userId;
+            this.expireAt = expireAt;
+        }
+    }
+
+    public UserPhoneIndex(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (backfillOnStartup) {
+            submitBackfill();
+        }
+    }
+
+    private void submitBackfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            return;
+        }
+        backfillExecutor.submit(() -> {
+            try {
+                if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(USER_PHONE_READY_KEY))) {
+                    backfill();
+                }
+            } catch (Exception e) {
+                log.error("回填手机号索引失败", e);
+            } finally {
+                backfilling.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * 查询手机号对应的用户id
+     * @param phone 手机号
+     * @return 用户id；索引中没有时返回 null，是否需要再查数据库由 {@link #mayExist(String)} 判断
+     */
+    public Long getUserId(String phone) {
+        long now = System.currentTimeMillis();
+        Entry entry = local.get(phone);
+        if (entry != null && entry.expireAt > now) {
+            return entry.userId == ABSENT ? null : entry.userId;
+        }
+        Object value = stringRedisTemplate.opsForHash().get(bucketKey(phone), phone);
+        if (value == null) {
+            return null;
+        }
+        long userId = Long.parseLong(value.toString());
+        cache(phone, userId, now);
+        return userId;
+    }
+
+    /**
+     * 索引未命中时，用户是否可能存在(需要查数据库)
+     * 本地负缓存命中或回填已完成时返回 false
+     */
+    public boolean mayExist(String phone) {
+        Entry entry = local.get(phone);
+        if (entry != null && entry.userId == ABSENT && entry.expireAt > System.currentTimeMillis()) {
+            return false;
+        }
+        return !isComplete();
+    }
+
+    /**
+     * 写入索引(注册成功或从数据库查到用户后调用)
+     */
+    public void put(String phone, Long userId) {
+        stringRedisTemplate.opsForHash().put(bucketKey(phone), phone, userId.toString());
+        cache(phone, userId, System.currentTimeMillis());
+    }
+
+    /**
+     * 记录手机号不存在(本地负缓存)
+     */
+    public void markAbsent(String phone) {
+        cache(phone, ABSENT, System.currentTimeMillis());
+    }
+
+    /**
+     * 删除索引(索引的用户id已经失效时调用)
+     */
+    public void remove(String phone) {
+        local.remove(phone);
+        stringRedisTemplate.opsForHash().delete(bucketKey(phone), phone);
+    }
+
+    /**
+     * 回填存量用户，按主键分页(id > 上一页最后的 id)，不使用 offset，不会越翻越慢，每页一次 pipeline 写入；
+     * 进度保存在 redis 中，中断后从上次的位置继续；多节点通过锁保证只有一个节点执行
+     * @return 本次回填的用户数，没有拿到锁返回 -1
+     */
+    public long backfill() {
+        String token = IdUtil.fastSimpleUUID();
+        Boolean locked = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LOCK_USER_PHONE_BACKFILL_KEY, token, BACKFILL_LOCK_TTL, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return -1;
+        }
+        try {
+            String cursor = stringRedisTemplate.opsForValue().get(USER_PHONE_BACKFILL_CURSOR_KEY);
+            long lastId = cursor == null ? 0L : Long.parseLong(cursor);
+            long total = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<User> users = userMapper.selectList(new QueryWrapper<User>()
+                        .select("id", "phone")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("limit " + backfillBatchSize));
+                if (users.isEmpty()) {
+                    break;
+                }
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (User user : users) {
+                        connection.hSet(bucketKey(user.getPhone()).getBytes(StandardCharsets.UTF_8),
+                                user.getPhone().getBytes(StandardCharsets.UTF_8),
+                                user.getId().toString().getBytes(StandardCharsets.UTF_8));
+                    }
+                    return null;
+                });
+                lastId = users.get(users.size() - 1).getId();
+                total += users.size();
+                stringRedisTemplate.opsForValue().set(USER_PHONE_BACKFILL_CURSOR_KEY, Long.toString(lastId));
+                if (users.size() < backfillBatchSize) {
+                    break;
+                }
+            }
+            if (!Thread.currentThread().isInterrupted()) {
+                // 回填期间新注册的用户由注册流程写入索引
+                stringRedisTemplate.opsForValue().set(USER_PHONE_READY_KEY, "1");
+                stringRedisTemplate.delete(USER_PHONE_BACKFILL_CURSOR_KEY);
+                complete = true;
+                completeCheckedAt = System.currentTimeMillis();
+                log.info("手机号索引回填完成，本次回填 {} 个用户", total);
+            }
+            return total;
+        } finally {
+            // 只释放自己的锁，超过有效期后锁可能已经被其他节点拿到
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(LOCK_USER_PHONE_BACKFILL_KEY), token);
+        }
+    }
+
+    /**
+     * 回填是否已完成，最多每隔 readyCheckMillis 查询一次 redis；
+     * 完成标记丢失(redis 数据丢失)时改回查询数据库，并重新回填
+     */
+    private boolean isComplete() {
+        long now = System.currentTimeMillis();
+        if (now - completeCheckedAt < readyCheckMillis) {
+            return complete;
+        }
+        completeCheckedAt = now;
+        boolean wasComplete = complete;
+        complete = Boolean.TRUE.equals(stringRedisTemplate.hasKey(USER_PHONE_READY_KEY));
+        if (wasComplete && !complete) {
+            log.warn("手机号索引回填标记丢失，改为查询数据库");
+            // 负缓存是按已完成的索引得出的，一并清空
+            local.clear();
+            if (backfillOnStartup) {
+                submitBackfill();
+            }
+        }
+        return complete;
+    }
+
+    private void cache(String phone, long userId, long now) {
+        if (local.size() >= MAX_LOCAL_ENTRIES) {
+            local.clear();
+        }
+        local.put(phone, new Entry(userId, now + localTtlMillis));
+    }
+
+    private String bucketKey(String phone) {
+        return USER_PHONE_KEY + Math.floorMod(phone.hashCode(), buckets);
+    }
+}
@@ -0,0 +1,6 @@
+-- 调整秒杀库存 只在库存 key 存在时生效
+-- KEYS[1] 库存key  ARGV[1] 变化量(下单为负数，取消订单归还为正数)
+if redis.call('exists', KEYS[1]) == 0 then
+    return nil
+end
+return redis.call('incrby', KEYS[1], ARGV[1])
@@ -0,0 +1,26 @@
+-- 把从数据库查到的更早的评论接到窗口末尾，窗口的末尾与查询时不同(被并发修改)时放弃
+-- KEYS[1] 最新评论窗口list
+-- ARGV[1] 查询时窗口是否存在 0/1 ARGV[2] 查询时窗口的最后一个元素 ARGV[3] 窗口保留的评论数 ARGV[4] 窗口有效期(秒)
+-- ARGV[5..] 依次追加的评论json(数据库中已经没有更早的评论时最后一个为结束标记)
+-- 窗口最多保留 N 条评论，结束标记(空串)不占名额，只能作为第 N + 1 个元素；评论被裁掉时结束标记随之去掉
+-- 返回 1：已追加 0：放弃
+
+local tail = redis.call('lindex', KEYS[1], -1)
+if ARGV[1] == '0' then
+    if tail then
+        return 0
+    end
+elseif tail ~= ARGV[2] then
+    return 0
+end
+if #ARGV < 5 then
+    return 0
+end
+local len = redis.call('rpush', KEYS[1], unpack(ARGV, 5))
+local max = tonumber(ARGV[3])
+local complete = ARGV[#ARGV] == ''
+if len > max and not (complete and len == max + 1) then
+    redis.call('ltrim', KEYS[1], 0, max - 1)
+end
+redis.call('expire', KEYS[1], ARGV[4])
+return 1
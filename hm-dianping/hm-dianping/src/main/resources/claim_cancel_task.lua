@@ -0,0 +1,9 @@
+-- 抢占到期的延时取消任务 不删除任务，只把到期时间推迟到租约结束
+-- KEYS[1] 延时任务zset  ARGV[1] 订单id  ARGV[2] 到期判断的时间戳  ARGV[3] 租约结束时间戳
+-- 返回 1：抢到；0：任务已被其他节点抢占、已执行或尚未到期
+local score = redis.call('zscore', KEYS[1], ARGV[1])
+if not score or tonumber(score) > tonumber(ARGV[2]) then
+    return 0
+end
+redis.call('zadd', KEYS[1], ARGV[3], ARGV[1])
+return 1
@@ -0,0 +1,19 @@
+-- 博文热度榜压缩
+-- 1. 只保留分数最高的 N 篇博文
+-- 2. 基准时间过旧时(分数增长到一定倍数)把基准时间移到当前，所有分数同比例缩小，防止分数溢出
+-- KEYS[1] 热度zset  KEYS[2] 基准时间key
+-- ARGV[1] 保留的博文数 ARGV[2] 当前时间(毫秒) ARGV[3] 半衰期(毫秒) ARGV[4] 经过多少个半衰期后重置基准时间
+-- 返回删除的博文数
+local removed = redis.call('zremrangebyrank', KEYS[1], 0, -tonumber(ARGV[1]) - 1)
+local now = tonumber(ARGV[2])
+local halfLife = tonumber(ARGV[3])
+local epoch = tonumber(redis.call('get', KEYS[2]) or '0')
+if epoch > 0 and now - epoch > halfLife * tonumber(ARGV[4]) then
+    local factor = math.pow(2, -(now - epoch) / halfLife)
+    local items = redis.call('zrange', KEYS[1], 0, -1, 'WITHSCORES')
+    for i = 1, #items, 2 do
+        redis.call('zadd', KEYS[1], tonumber(items[i + 1]) * factor, items[i])
+    end
+    redis.call('set', KEYS[2], ARGV[2])
+end
+return removed
@@ -0,0 +1,12 @@
+-- 博文热度加分 分数 = Σ 权重 × 2^((事件时间 - 基准时间) / 半衰期)
+-- 越新的事件加的分越多，等价于所有分数随时间按半衰期衰减，且不需要定时改写全部分数
+-- KEYS[1] 热度zset  KEYS[2] 基准时间key
+-- ARGV[1] 博文id ARGV[2] 权重 ARGV[3] 当前时间(毫秒) ARGV[4] 半衰期(毫秒)
+local now = tonumber(ARGV[3])
+local epoch = tonumber(redis.call('get', KEYS[2]) or '0')
+if epoch == 0 then
+    epoch = now
+    redis.call('set', KEYS[2], ARGV[3])
+end
+local score = tonumber(ARGV[2]) * math.pow(2, (now - epoch) / tonumber(ARGV[4]))
+return redis.call('zincrby', KEYS[1], score, ARGV[1])
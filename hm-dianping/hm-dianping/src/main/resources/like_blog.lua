@@ -0,0 +1,13 @@
+-- 点赞/取消点赞 同一用户重复请求只会在点赞和未点赞之间切换，点赞数不会重复累加
+-- KEYS[1] 博文点赞zset(member：用户id，score：点赞时间)  KEYS[2] 待写回数据库的点赞数增量hash
+-- ARGV[1] 用户id ARGV[2] 当前时间(毫秒) ARGV[3] 博文id
+-- 返回 1：点赞 -1：取消点赞
+
+if redis.call('zscore', KEYS[1], ARGV[1]) then
+    redis.call('zrem', KEYS[1], ARGV[1])
+    redis.call('hincrby', KEYS[2], ARGV[3], -1)
+    return -1
+end
+redis.call('zadd', KEYS[1], ARGV[2], ARGV[1])
+redis.call('hincrby', KEYS[2], ARGV[3], 1)
+return 1
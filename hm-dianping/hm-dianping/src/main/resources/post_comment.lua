@@ -0,0 +1,14 @@
+-- 发表评论 评论放进博文的最新评论窗口并累加评论数增量
+-- KEYS[1] 最新评论窗口list(新的在前)  KEYS[2] 待写回数据库的评论数增量hash
+-- ARGV[1] 评论json ARGV[2] 窗口保留的评论数 ARGV[3] 窗口有效期(秒) ARGV[4] 博文id
+-- 窗口最多保留 N 条评论，结束标记(空串)不占名额，只能作为第 N + 1 个元素；评论被裁掉时结束标记随之去掉
+
+local len = redis.call('lpush', KEYS[1], ARGV[1])
+local max = tonumber(ARGV[2])
+local complete = redis.call('lindex', KEYS[1], -1) == ''
+if len > max and not (complete and len == max + 1) then
+    redis.call('ltrim', KEYS[1], 0, max - 1)
+end
+redis.call('expire', KEYS[1], ARGV[3])
+redis.call('hincrby', KEYS[2], ARGV[4], 1)
+return 1
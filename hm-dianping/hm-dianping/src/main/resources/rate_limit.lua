@@ -0,0 +1,25 @@
+-- 秒杀滑动窗口限流 同时检查用户窗口和优惠券窗口
+-- KEYS[1] 用户窗口key  KEYS[2] 优惠券窗口key
+-- ARGV[1] 当前时间(毫秒) ARGV[2] 窗口大小(毫秒) ARGV[3] 用户窗口限额 ARGV[4] 优惠券窗口限额 ARGV[5] 本次请求的唯一标识
+-- 返回 0：放行 1：用户超限 2：优惠券超限
+local now = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+
+-- 1. 清除窗口外的请求记录
+redis.call('zremrangebyscore', KEYS[1], 0, now - window)
+redis.call('zremrangebyscore', KEYS[2], 0, now - window)
+
+-- 2. 判断是否超限
+if redis.call('zcard', KEYS[1]) >= tonumber(ARGV[3]) then
+    return 1
+end
+if redis.call('zcard', KEYS[2]) >= tonumber(ARGV[4]) then
+    return 2
+end
+
+-- 3. 记录本次请求
+redis.call('zadd', KEYS[1], now, ARGV[5])
+redis.call('pexpire', KEYS[1], window)
+redis.call('zadd', KEYS[2], now, ARGV[5])
+redis.call('pexpire', KEYS[2], window)
+return 0
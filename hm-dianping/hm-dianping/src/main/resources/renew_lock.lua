@@ -0,0 +1,8 @@
+-- 续期锁 只有锁仍属于自己时才续期
+-- KEYS[1] 锁key  ARGV[1] 加锁时写入的标识  ARGV[2] 过期时间(秒)
+-- 返回 1：续期成功 0：锁已经不属于自己
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    redis.call('expire', KEYS[1], ARGV[2])
+    return 1
+end
+return 0
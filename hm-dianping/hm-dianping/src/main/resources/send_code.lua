@@ -0,0 +1,24 @@
+-- 保存短信验证码 同时检查单个手机号的发送间隔和每日上限
+-- KEYS[1] 验证码key  KEYS[2] 发送间隔key  KEYS[3] 当日发送次数key
+-- ARGV[1] 验证码 ARGV[2] 验证码有效期(秒) ARGV[3] 发送间隔(秒) ARGV[4] 每日上限 ARGV[5] 当日计数的有效期(秒)
+-- 返回 0：可以发送 1：发送太频繁 2：超过每日上限
+
+-- 1. 发送间隔内不能再次发送
+if redis.call('exists', KEYS[2]) == 1 then
+    return 1
+end
+
+-- 2. 每日上限
+local count = tonumber(redis.call('get', KEYS[3]) or '0')
+if count >= tonumber(ARGV[4]) then
+    return 2
+end
+
+-- 3. 计数、设置发送间隔、保存验证码
+redis.call('incr', KEYS[3])
+if count == 0 then
+    redis.call('expire', KEYS[3], ARGV[5])
+end
+redis.call('set', KEYS[2], '1', 'EX', ARGV[3])
+redis.call('set', KEYS[1], ARGV[1], 'EX', ARGV[2])
+return 0
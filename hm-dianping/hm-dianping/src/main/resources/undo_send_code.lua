@@ -0,0 +1,16 @@
+-- 撤销 send_code.lua 的计数 验证码没有放进发送队列时调用
+-- KEYS[1] 验证码key  KEYS[2] 发送间隔key  KEYS[3] 当日发送次数key
+-- ARGV[1] 没有发出的验证码
+
+-- 1. 验证码没有发给用户，仍是本次保存的才删除
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    redis.call('del', KEYS[1])
+end
+
+-- 2. 允许马上重试，并归还当日次数
+redis.call('del', KEYS[2])
+local count = tonumber(redis.call('get', KEYS[3]) or '0')
+if count > 0 then
+    redis.call('decr', KEYS[3])
+end
+return 0
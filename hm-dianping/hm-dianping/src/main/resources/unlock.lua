@@ -0,0 +1,6 @@
+-- 释放锁 只有锁仍属于自己时才删除
+-- KEYS[1] 锁key  ARGV[1] 加锁时写入的标识
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    return redis.call('del', KEYS[1])
+end
+return 0
@@ -0,0 +1,10 @@
+-- 续期 workerId 租约，并记录当前已用到的时间(毫秒)
+-- KEYS[1] 租约key  KEYS[2] 时间高水位key
+-- ARGV[1] 本节点标识  ARGV[2] 租约时长(秒)  ARGV[3] 已用到的时间
+if redis.call('get', KEYS[1]) ~= ARGV[1] then
+    -- 租约已经不属于本节点
+    return 0
+end
+redis.call('expire', KEYS[1], ARGV[2])
+redis.call('set', KEYS[2], ARGV[3], 'EX', 86400)
+return 1
@@ -1,15 +1,23 @@
 package com.hmdp;
 
 import com.hmdp.service.impl.ShopServiceImpl;
+import com.hmdp.utils.IdGenerator;
 import com.hmdp.utils.RedisIdWorker;
+import com.hmdp.utils.SnowflakeIdWorker;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.annotation.Resource;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import static org.junit.jupiter.api.Assertions.fail;
+
 @SpringBootTest
 class HmDianPingApplicationTests {
 
@@ -17,7 +25,10 @@ class HmDianPingApplicationTests {
     private ShopServiceImpl shopService;
 
     @Resource
-    private RedisIdWorker redisIdWorker;
+    private SnowflakeIdWorker snowflakeIdWorker;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
 
 
     /**
@@ -28,30 +39,82 @@ class HmDianPingApplicationTests {
         shopService.saveShop2Redis(1L, 10L);
     }
 
-    private ExecutorService es = Executors.newFixedThreadPool(500);
+    private ExecutorService es = Executors.newFixedThreadPool(32);
 
     /**
-     * 测试redis全局唯一id的生成
+     * 测试号段模式id的唯一性
      * @throws InterruptedException
-     * 300个线程，每个线程生成100个ID
+     * 号段设为100，32个线程，每个线程生成1万个ID，跨越多次号段切换和预取
      */
     @Test
-    void testIdWorker() throws InterruptedException {
-        CountDownLatch latch = new CountDownLatch(300); // 用于实现线程间协调和控制的工具。在这里，它用于允许主线程等待所有子线程完成。
-        Runnable task = () -> {
-            for (int i = 0; i < 100; i++) {
-                long id = redisIdWorker.nextId("order");
-                System.out.println("id = " + id);
-            }
-            latch.countDown(); // 指示主线程的一个子线程完成了任务
-        };
+    void testSegmentIdWorker() throws InterruptedException {
+        assertSegmentUnique(100L, 32, 10_000);
+    }
 
-        long begin = System.currentTimeMillis();
-        for (int i = 0; i < 300; i++) {
-            es.submit(task); // 模拟300个线程执行该task任务
+    /**
+     * 测试雪花算法id的唯一性
+     * @throws InterruptedException
+     * 16个线程，每个线程生成10万个ID，排序后检查相邻的id是否重复
+     */
+    @Test
+    void testSnowflakeIdWorker() throws InterruptedException {
+        assertUnique(snowflakeIdWorker, 16, 100_000);
+    }
+
+    /**
+     * 大规模唯一性测试，共3200万个ID(排序需要约256MB内存)，默认不执行：
+     * mvn test -Dtest=HmDianPingApplicationTests -Dloadtest=true
+     * @throws InterruptedException
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void testSegmentIdWorkerLarge() throws InterruptedException {
+        assertSegmentUnique(10_000L, 32, 1_000_000);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "loadtest", matches = "true")
+    void testSnowflakeIdWorkerLarge() throws InterruptedException {
+        assertUnique(snowflakeIdWorker, 32, 1_000_000);
+    }
+
+    private void assertSegmentUnique(long segmentStep, int threads, int perThread) throws InterruptedException {
+        RedisIdWorker segmentIdWorker = new RedisIdWorker(stringRedisTemplate);
+        ReflectionTestUtils.setField(segmentIdWorker, "segmentMode", true);
+        ReflectionTestUtils.setField(segmentIdWorker, "segmentStep", segmentStep);
+        try {
+            assertUnique(segmentIdWorker, threads, perThread);
+        } finally {
+            segmentIdWorker.destroy();
+        }
+    }
+
+    private void assertUnique(IdGenerator idGenerator, int threads, int perThread) throws InterruptedException {
+        long[] ids = new long[threads * perThread]; // 每个线程写自己的区间，不需要同步
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            es.submit(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        ids[offset + i] = idGenerator.nextId("order");
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
         }
-        latch.await(); // 等待300个线程完成
+
+        long begin = System.currentTimeMillis();
+        latch.await();
         long end = System.currentTimeMillis();
         System.out.println("time = " + (end - begin));
+
+        Arrays.sort(ids);
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i - 1] == ids[i]) {
+                fail("id重复: " + ids[i]);
+            }
+        }
     }
 }
@@ -0,0 +1,174 @@
+package com.hmdp;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.json.JSONUtil;
+import com.hmdp.dto.UserDTO;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.entity.Voucher;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.service.ISeckillVoucherService;
+import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.service.IVoucherService;
+import com.hmdp.utils.LoginSessionManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 秒杀压测：本地 redis + H2(MySQL模式)，模拟 N 个用户并发抢购 /voucher-order/seckill/{id}
+ * 输出吞吐量和 p50/p99/p999 延迟，并校验没有超卖、没有一人多单
+ * 运行：mvn test -Dloadtest=true -Dtest=SeckillLoadTests
+ * 对比下单路径：-Dhmdp.seckill.group-commit=false
+ * 签名令牌登录态：-Dhmdp.session.mode=signed -Dhmdp.session.secret=xxx
+ * 压测参数：-Dloadtest.users -Dloadtest.attempts -Dloadtest.threads -Dloadtest.stock
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class SeckillLoadTests {
+
+    // 用户数
+    private static final int USERS = Integer.getInteger("loadtest.users", 2000);
+    // 每个用户的请求次数(>1 用于验证一人一单)
+    private static final int ATTEMPTS = Integer.getInteger("loadtest.attempts", 2);
+    // 并发线程数
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 200);
+    // 库存
+    private static final int STOCK = Integer.getInteger("loadtest.stock", 100);
+
+    @LocalServerPort
+    private int port;
+
+    @Resource
+    private IVoucherService voucherService;
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+    @Resource
+    private LoginSessionManager loginSessionManager;
+
+    @Value("${hmdp.seckill.group-commit:true}")
+    private boolean groupCommit;
+
+    @Test
+    void testSeckillLoad() throws Exception {
+        // 1. 准备秒杀券
+        Voucher voucher = new Voucher()
+                .setShopId(1L).setTitle("压测券").setPayValue(100L).setActualValue(1000L)
+                .setType(1).setStatus(1).setStock(STOCK)
+                .setBeginTime(LocalDateTime.now().minusMinutes(1))
+                .setEndTime(LocalDateTime.now().plusHours(1));
+        voucherService.addSeckillVoucher(voucher);
+        Long voucherId = voucher.getId();
+
+        // 2. 准备登录用户，每个用户请求 ATTEMPTS 次，打乱顺序
+        List<String> tokens = createTokens(USERS);
+        List<String> requests = new ArrayList<>(USERS * ATTEMPTS);
+        for (int i = 0; i < ATTEMPTS; i++) {
+            requests.addAll(tokens);
+        }
+        Collections.shuffle(requests);
+
+        // 3. 并发请求
+        long[] latencies = new long[requests.size()];
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService es = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(es.submit(() -> {
+                start.await();
+                int i;
+                while ((i = cursor.getAndIncrement()) < requests.size()) {
+                    long begin = System.nanoTime();
+                    try {
+                        if (seckill(voucherId, requests.get(i))) {
+                            success.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        es.shutdown();
+
+        // 4. 输出吞吐量和延迟分布
+        Arrays.sort(latencies);
+        System.out.printf("mode=%s users=%d requests=%d threads=%d stock=%d%n",
+                groupCommit ? "group-commit" : "sync", USERS, requests.size(), THREADS, STOCK);
+        System.out.printf("throughput=%.1f req/s success=%d errors=%d%n",
+                requests.size() * 1e9 / elapsed, success.get(), errors.get());
+        System.out.printf("latency p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+
+        // 5. 校验：不超卖、一人一单、库存守恒
+        List<VoucherOrder> orders = voucherOrderService.query().eq("voucher_id", voucherId).list();
+        assertTrue(orders.size() <= STOCK, "超卖：订单数 " + orders.size() + " > 库存 " + STOCK);
+        Set<Long> users = orders.stream().map(VoucherOrder::getUserId).collect(Collectors.toSet());
+        assertEquals(orders.size(), users.size(), "存在一人多单");
+        assertEquals(success.get(), orders.size(), "成功响应数与订单数不一致");
+        SeckillVoucher seckillVoucher = seckillVoucherService.getById(voucherId);
+        assertEquals(STOCK - orders.size(), seckillVoucher.getStock(), "剩余库存与订单数不守恒");
+    }
+
+    /**
+     * 直接创建登录态，模拟已登录的用户(与 hmdp.session.mode 无关)
+     */
+    private List<String> createTokens(int count) {
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UserDTO user = new UserDTO();
+            user.setId(1_000_000L + i);
+            user.setNickName("load_" + user.getId());
+            tokens.add(loginSessionManager.createSession(user));
+        }
+        return tokens;
+    }
+
+    private boolean seckill(Long voucherId, String token) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + port + "/voucher-order/seckill/" + voucherId);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("authorization", token);
+        try (InputStream in = conn.getInputStream()) {
+            String body = IoUtil.read(in, StandardCharsets.UTF_8);
+            return JSONUtil.parseObj(body).getBool("success", false);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
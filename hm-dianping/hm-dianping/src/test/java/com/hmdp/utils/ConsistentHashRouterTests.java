@@ -0,0 +1,88 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRouterTests {
+
+    private static final int KEYS = 10_000;
+
+    /**
+     * 同样的节点名称在不同实例上路由结果一致，与添加顺序无关
+     */
+    @Test
+    void testDeterministic() {
+        ConsistentHashRouter<String> a = router("n1", "n2", "n3");
+        ConsistentHashRouter<String> b = router("n3", "n1", "n2");
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(a.route("key:" + i), b.route("key:" + i));
+        }
+    }
+
+    /**
+     * 移除节点时只有原来属于该节点的 key 迁移，添加节点时只有迁移到新节点的 key 变化
+     */
+    @Test
+    void testMinimalMovement() {
+        ConsistentHashRouter<String> router = router("n1", "n2", "n3", "n4");
+        Map<String, String> before = routeAll(router);
+
+        router.removeNode("n2");
+        Map<String, String> afterRemove = routeAll(router);
+        for (Map.Entry<String, String> e : before.entrySet()) {
+            if ("n2".equals(e.getValue())) {
+                assertNotEquals("n2", afterRemove.get(e.getKey()));
+            } else {
+                assertEquals(e.getValue(), afterRemove.get(e.getKey()), e.getKey());
+            }
+        }
+
+        router.addNode("n2", "n2");
+        assertEquals(before, routeAll(router));
+    }
+
+    /**
+     * 虚拟节点足够多时每个节点分到的 key 接近平均值
+     */
+    @Test
+    void testBalance() {
+        ConsistentHashRouter<String> router = router("n1", "n2", "n3", "n4");
+        Map<String, Integer> counts = new HashMap<>();
+        routeAll(router).values().forEach(node -> counts.merge(node, 1, Integer::sum));
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > KEYS / 4 / 2 && count < KEYS / 4 * 2, counts.toString());
+        }
+    }
+
+    @Test
+    void testEmpty() {
+        ConsistentHashRouter<String> router = router("n1");
+        assertEquals("n1", router.removeNode("n1"));
+        assertThrows(IllegalStateException.class, () -> router.route("key"));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRouter<String>(0));
+    }
+
+    private static ConsistentHashRouter<String> router(String... names) {
+        ConsistentHashRouter<String> router = new ConsistentHashRouter<>(160);
+        for (String name : names) {
+            router.addNode(name, name);
+        }
+        return router;
+    }
+
+    private static Map<String, String> routeAll(ConsistentHashRouter<String> router) {
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            result.put("key:" + i, router.route("key:" + i));
+        }
+        return result;
+    }
+}
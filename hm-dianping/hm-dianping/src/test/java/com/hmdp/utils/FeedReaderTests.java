@@ -0,0 +1,154 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FeedReaderTests {
+
+    private static final int COUNT = 3;
+
+    /**
+     * 时间戳倒序，相同时按博文id字典序倒序，重复的博文只保留一次
+     */
+    @Test
+    void testMergeOrder() {
+        List<List<ZSetOperations.TypedTuple<String>>> sources = Arrays.asList(
+                sorted(tuple("10", 5), tuple("12", 3), tuple("7", 3)),
+                sorted(tuple("11", 5), tuple("12", 3), tuple("3", 1)),
+                Collections.emptyList(),
+                sorted(tuple("8", 3)));
+        assertEquals(Arrays.asList("11", "10", "8", "7", "12", "3"), values(FeedReader.merge(sources, 0, 10)));
+        assertEquals(Arrays.asList("8", "7"), values(FeedReader.merge(sources, 2, 2)));
+        assertEquals(Collections.emptyList(), values(FeedReader.merge(Collections.emptyList(), 0, 10)));
+    }
+
+    /**
+     * 跳过的是去重后的条数：跨来源重复的博文不占 offset
+     */
+    @Test
+    void testSkipAfterDedupe() {
+        List<List<ZSetOperations.TypedTuple<String>>> sources = Arrays.asList(
+                sorted(tuple("5", 9), tuple("4", 9), tuple("3", 9)),
+                sorted(tuple("5", 9), tuple("4", 9), tuple("2", 9)));
+        assertEquals(Arrays.asList("3", "2"), values(FeedReader.merge(sources, 2, COUNT)));
+    }
+
+    /**
+     * 与暴力合并对比：各来源只取 offset + count 条时，每一页都与全部合并排序后的结果一致；
+     * 按 最小时间戳 + offset 滚动(与 BlogServiceImpl.queryBlogOfFollow 相同)时不重不漏，包括整页时间戳相同的情况
+     */
+    @Test
+    void testScrollMatchesBruteForce() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            List<List<ZSetOperations.TypedTuple<String>>> sources = randomSources(random);
+            List<ZSetOperations.TypedTuple<String>> expected = bruteForce(sources);
+
+            List<ZSetOperations.TypedTuple<String>> scrolled = new ArrayList<>();
+            long max = Long.MAX_VALUE;
+            int offset = 0;
+            while (true) {
+                List<ZSetOperations.TypedTuple<String>> page = read(sources, max, offset, COUNT);
+                assertEquals(values(page(expected, max, offset, COUNT)), values(page), "round " + round);
+                if (page.isEmpty()) {
+                    break;
+                }
+                scrolled.addAll(page);
+                long minTime = 0;
+                int os = 0;
+                for (ZSetOperations.TypedTuple<String> tuple : page) {
+                    long time = tuple.getScore().longValue();
+                    if (time == minTime) {
+                        os++;
+                    } else {
+                        minTime = time;
+                        os = 1;
+                    }
+                }
+                if (minTime == max) {
+                    os += offset;
+                }
+                max = minTime;
+                offset = os;
+            }
+            assertEquals(values(expected), values(scrolled), "round " + round);
+        }
+    }
+
+    /**
+     * 模拟 FeedReader.read：每个来源按 ZREVRANGEBYSCORE key max 0 LIMIT 0 offset+count 取出后归并
+     */
+    private static List<ZSetOperations.TypedTuple<String>> read(List<List<ZSetOperations.TypedTuple<String>>> sources,
+                                                               long max, int offset, int count) {
+        List<List<ZSetOperations.TypedTuple<String>>> fetched = sources.stream()
+                .map(s -> s.stream()
+                        .filter(t -> t.getScore() <= max)
+                        .limit(offset + count)
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+        return FeedReader.merge(fetched, offset, count);
+    }
+
+    private static List<ZSetOperations.TypedTuple<String>> page(List<ZSetOperations.TypedTuple<String>> all,
+                                                               long max, int offset, int count) {
+        return all.stream()
+                .filter(t -> t.getScore() <= max)
+                .skip(offset)
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    private static List<ZSetOperations.TypedTuple<String>> bruteForce(List<List<ZSetOperations.TypedTuple<String>>> sources) {
+        Map<String, ZSetOperations.TypedTuple<String>> unique = new HashMap<>();
+        sources.forEach(s -> s.forEach(t -> unique.put(t.getValue(), t)));
+        List<ZSetOperations.TypedTuple<String>> all = new ArrayList<>(unique.values());
+        all.sort(FeedReader.ORDER);
+        return all;
+    }
+
+    /**
+     * 收件箱加几个发件箱，时间戳范围很小以制造大量相同时间戳；
+     * 一部分博文同时出现在两个来源中(时间戳相同)，模拟作者成为大V之前推送到收件箱的博文
+     */
+    private static List<List<ZSetOperations.TypedTuple<String>>> randomSources(Random random) {
+        int sourceCount = 1 + random.nextInt(4);
+        List<Set<ZSetOperations.TypedTuple<String>>> sets = new ArrayList<>();
+        for (int i = 0; i < sourceCount; i++) {
+            sets.add(new HashSet<>());
+        }
+        int blogs = random.nextInt(20);
+        for (int id = 1; id <= blogs; id++) {
+            ZSetOperations.TypedTuple<String> tuple = tuple(String.valueOf(id), random.nextInt(5));
+            sets.get(random.nextInt(sourceCount)).add(tuple);
+            if (random.nextInt(4) == 0) {
+                sets.get(random.nextInt(sourceCount)).add(tuple);
+            }
+        }
+        return sets.stream().map(s -> {
+            List<ZSetOperations.TypedTuple<String>> list = new ArrayList<>(s);
+            list.sort(FeedReader.ORDER);
+            return list;
+        }).collect(Collectors.toList());
+    }
+
+    @SafeVarargs
+    private static List<ZSetOperations.TypedTuple<String>> sorted(ZSetOperations.TypedTuple<String>... tuples) {
+        List<ZSetOperations.TypedTuple<String>> list = new ArrayList<>(Arrays.asList(tuples));
+        list.sort(FeedReader.ORDER);
+        return list;
+    }
+
+    private static ZSetOperations.TypedTuple<String> tuple(String value, double score) {
+        return new DefaultTypedTuple<>(value, score);
+    }
+
+    private static List<String> values(List<ZSetOperations.TypedTuple<String>> tuples) {
+        return tuples.stream().map(ZSetOperations.TypedTuple::getValue).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,154 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeekCursorTests {
+
+    private static final Pattern PARAM = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+    private static final int PAGE_SIZE = 3;
+
+    // 内存数据库，liked 可以为 NULL，存在大量相同的 liked
+    private static Connection connection;
+    private static final List<Long[]> ROWS = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:seek_cursor;MODE=MySQL");
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE t (id BIGINT PRIMARY KEY, liked INT NULL)");
+        }
+        Random random = new Random(7);
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO t (id, liked) VALUES (?, ?)")) {
+            for (long id = 1; id <= 40; id++) {
+                Long liked = random.nextInt(4) == 0 ? null : (long) random.nextInt(5);
+                ps.setLong(1, id);
+                ps.setObject(2, liked);
+                ps.executeUpdate();
+                ROWS.add(new Long[]{id, liked});
+            }
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testEncodeDecode() {
+        String cursor = SeekCursor.encode(12, null, 3.5, 9L);
+        assertArrayEquals(new String[]{"12", null, "3.5", "9"}, SeekCursor.decode(cursor, 4));
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+        assertNull(SeekCursor.decode(null, 2));
+        assertNull(SeekCursor.decode(" ", 2));
+        assertThrows(IllegalArgumentException.class, () -> SeekCursor.decode(cursor, 3));
+        assertThrows(IllegalArgumentException.class, () -> SeekCursor.decode("!!", 1));
+    }
+
+    @Test
+    void testParse() {
+        assertEquals(12L, SeekCursor.toLong("12", false));
+        assertNull(SeekCursor.toLong(null, true));
+        assertEquals(3, SeekCursor.toInteger("3", false));
+        assertEquals(3.5, SeekCursor.toDouble("3.5", false));
+        assertThrows(IllegalArgumentException.class, () -> SeekCursor.toLong(null, false));
+        assertThrows(IllegalArgumentException.class, () -> SeekCursor.toLong("1x", false));
+        assertThrows(IllegalArgumentException.class, () -> SeekCursor.toInteger("99999999999", false));
+        assertThrows(IllegalArgumentException.class, () -> SeekCursor.toDouble("NaN", false));
+        assertThrows(IllegalArgumentException.class, () -> SeekCursor.toDouble("Infinity", true));
+    }
+
+    /**
+     * 只按 id 翻页，逐页拼起来与整体排序一致
+     */
+    @Test
+    void testSeekById() throws SQLException {
+        for (boolean desc : new boolean[]{false, true}) {
+            List<Long> expected = ROWS.stream().map(r -> r[0]).collect(Collectors.toList());
+            if (desc) {
+                Collections.reverse(expected);
+            }
+            List<Long> actual = new ArrayList<>();
+            Long lastId = null;
+            while (true) {
+                List<Long[]> page = query(SeekCursor.seek(new QueryWrapper<>(), lastId, desc));
+                if (page.isEmpty()) {
+                    break;
+                }
+                page.forEach(r -> actual.add(r[0]));
+                lastId = page.get(page.size() - 1)[0];
+            }
+            assertEquals(expected, actual, desc ? "desc" : "asc");
+        }
+    }
+
+    /**
+     * 按 (liked, id) 翻页，NULL 升序时在最前、降序时在最后，每页的游标都经过 encode/decode，
+     * 逐页拼起来与整体排序一致(不重不漏)
+     */
+    @Test
+    void testSeekByColumn() throws SQLException {
+        Comparator<Long[]> asc = Comparator.<Long[], Long>comparing(r -> r[1], Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(r -> r[0]);
+        for (boolean desc : new boolean[]{false, true}) {
+            List<Long> expected = ROWS.stream()
+                    .sorted(desc ? asc.reversed() : asc)
+                    .map(r -> r[0])
+                    .collect(Collectors.toList());
+            List<Long> actual = new ArrayList<>();
+            String cursor = null;
+            while (true) {
+                String[] last = SeekCursor.decode(cursor, 2);
+                Integer lastLiked = last == null ? null : SeekCursor.toInteger(last[0], true);
+                Long lastId = last == null ? null : SeekCursor.toLong(last[1], false);
+                List<Long[]> page = query(SeekCursor.seek(new QueryWrapper<>(), "liked", lastLiked, lastId, desc));
+                if (page.isEmpty()) {
+                    break;
+                }
+                page.forEach(r -> actual.add(r[0]));
+                Long[] tail = page.get(page.size() - 1);
+                cursor = SeekCursor.encode(tail[1], tail[0]);
+            }
+            assertEquals(expected, actual, desc ? "desc" : "asc");
+        }
+    }
+
+    /**
+     * 把 wrapper 生成的条件中的 #{ew.paramNameValuePairs.X} 换成 ? 后用 jdbc 执行
+     */
+    private static List<Long[]> query(QueryWrapper<Object> wrapper) throws SQLException {
+        String segment = wrapper.getCustomSqlSegment();
+        List<Object> params = new ArrayList<>();
+        Matcher m = PARAM.matcher(segment);
+        StringBuffer sql = new StringBuffer("SELECT id, liked FROM t ");
+        while (m.find()) {
+            params.add(wrapper.getParamNameValuePairs().get(m.group(1)));
+            m.appendReplacement(sql, "?");
+        }
+        m.appendTail(sql);
+        sql.append(" LIMIT ").append(PAGE_SIZE);
+        try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            List<Long[]> rows = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Long[]{rs.getLong(1), rs.getObject(2, Long.class)});
+                }
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SimpleJsonTests {
+
+    @Test
+    void testParse() {
+        Object value = SimpleJson.parse(" {\"id\": 12, \"score\": -1.5e3, \"ok\": true, \"name\": null,"
+                + " \"tags\": [\"a\", [], {}], \"title\": \"x\"} ");
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("id", "12");
+        expected.put("score", "-1.5e3");
+        expected.put("ok", "true");
+        expected.put("name", null);
+        expected.put("tags", Arrays.asList("a", Arrays.asList(), new LinkedHashMap<>()));
+        expected.put("title", "x");
+        assertEquals(expected, value);
+        assertNull(SimpleJson.parse("null"));
+    }
+
+    /**
+     * writeString 写出的字符串能原样解析回来
+     */
+    @Test
+    void testStringRoundTrip() {
+        String s = "引号\" 反斜杠\\ 斜杠/ 换行\n\r 制表\t \b\f 控制字符\u0001 结尾";
+        StringBuilder sb = new StringBuilder();
+        SimpleJson.writeString(sb, s);
+        assertEquals(s, SimpleJson.parse(sb.toString()));
+        assertEquals("é/", SimpleJson.parse("\"\\u00e9\\/\""));
+    }
+
+    @Test
+    void testInvalid() {
+        for (String json : new String[]{"", "{", "{\"a\" 1}", "{a:1}", "[1 2]", "\"abc", "\"\\u12\"", "tru", "1 2", "@"}) {
+            assertThrows(IllegalArgumentException.class, () -> SimpleJson.parse(json), json);
+        }
+    }
+}
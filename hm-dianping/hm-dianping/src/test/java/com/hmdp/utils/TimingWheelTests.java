@@ -0,0 +1,71 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    /**
+     * 到期顺序与延时一致，超过一圈(80ms)的任务不会在第一圈经过同一个槽时提前触发
+     */
+    @Test
+    void testExpiry() throws InterruptedException {
+        // 直接在时间轮线程执行，触发顺序就是到期顺序
+        TimingWheel wheel = new TimingWheel("timing-wheel-test", TICK_MS, WHEEL_SIZE, Runnable::run);
+        long[] delays = {250, 30, 0, 90, 170, 5};
+        List<Long> fired = new ArrayList<>();
+        Map<Long, Long> elapsed = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        long begin = System.nanoTime();
+        try {
+            for (long delay : delays) {
+                wheel.schedule(() -> {
+                    elapsed.put(delay, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+                    synchronized (fired) {
+                        fired.add(delay);
+                    }
+                    latch.countDown();
+                }, delay);
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "任务没有全部触发");
+        } finally {
+            wheel.stop();
+        }
+
+        // 0 和 5 都在第一个 tick 触发，按添加顺序
+        synchronized (fired) {
+            assertEquals(Arrays.asList(0L, 5L, 30L, 90L, 170L, 250L), fired);
+        }
+        for (long delay : delays) {
+            // 添加时可能已经走过了当前 tick 的一部分，最多提前一个 tick
+            assertTrue(elapsed.get(delay) >= delay - TICK_MS,
+                    "延时 " + delay + "ms 的任务在 " + elapsed.get(delay) + "ms 触发");
+        }
+    }
+
+    /**
+     * stop 之后不再触发
+     */
+    @Test
+    void testStop() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel("timing-wheel-test", TICK_MS, WHEEL_SIZE, Runnable::run);
+        CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(latch::countDown, 50);
+        wheel.stop();
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS), "stop 之后任务仍然触发");
+    }
+}
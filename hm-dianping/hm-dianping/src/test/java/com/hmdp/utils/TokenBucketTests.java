@@ -0,0 +1,39 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地令牌桶
+ */
+class TokenBucketTests {
+
+    /**
+     * 桶满时允许 capacity 个突发请求，之后拒绝
+     */
+    @Test
+    void testBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(), "第 " + (i + 1) + " 个请求应放行");
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    /**
+     * 令牌用完后按速率补充，补充不超过容量
+     */
+    @Test
+    void testRefill() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 2);
+        while (bucket.tryAcquire()) {
+            // 取完初始令牌
+        }
+        Thread.sleep(50); // 约补充 5 个，桶容量只有 2
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+}
@@ -0,0 +1,143 @@
+-- 压测用的 H2(MySQL模式) 表结构，字段与 hmdp.sql 保持一致
+DROP TABLE IF EXISTS tb_blog;
+CREATE TABLE tb_blog (
+  id bigint NOT NULL AUTO_INCREMENT,
+  shop_id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  title varchar(255) NOT NULL,
+  images varchar(2048) NOT NULL,
+  content varchar(2048) NOT NULL,
+  liked int DEFAULT 0,
+  comments int DEFAULT NULL,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+DROP TABLE IF EXISTS tb_blog_comments;
+CREATE TABLE tb_blog_comments (
+  id bigint NOT NULL AUTO_INCREMENT,
+  user_id bigint NOT NULL,
+  blog_id bigint NOT NULL,
+  parent_id bigint NOT NULL,
+  answer_id bigint NOT NULL,
+  content varchar(255) NOT NULL,
+  liked int DEFAULT NULL,
+  status tinyint DEFAULT NULL,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+DROP TABLE IF EXISTS tb_follow;
+CREATE TABLE tb_follow (
+  id bigint NOT NULL AUTO_INCREMENT,
+  user_id bigint NOT NULL,
+  follow_user_id bigint NOT NULL,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX uk_user_follow ON tb_follow (user_id, follow_user_id);
+
+DROP TABLE IF EXISTS tb_seckill_voucher;
+CREATE TABLE tb_seckill_voucher (
+  voucher_id bigint NOT NULL,
+  stock int NOT NULL,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  begin_time timestamp NOT NULL,
+  end_time timestamp NOT NULL,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (voucher_id)
+);
+
+DROP TABLE IF EXISTS tb_shop;
+CREATE TABLE tb_shop (
+  id bigint NOT NULL AUTO_INCREMENT,
+  name varchar(128) NOT NULL,
+  type_id bigint NOT NULL,
+  images varchar(1024) NOT NULL,
+  area varchar(128) DEFAULT NULL,
+  address varchar(255) NOT NULL,
+  x double NOT NULL,
+  y double NOT NULL,
+  avg_price bigint DEFAULT NULL,
+  sold int NOT NULL,
+  comments int NOT NULL,
+  score int NOT NULL,
+  open_hours varchar(32) DEFAULT NULL,
+  create_time timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+DROP TABLE IF EXISTS tb_shop_type;
+CREATE TABLE tb_shop_type (
+  id bigint NOT NULL AUTO_INCREMENT,
+  name varchar(32) DEFAULT NULL,
+  icon varchar(255) DEFAULT NULL,
+  sort int DEFAULT NULL,
+  create_time timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+DROP TABLE IF EXISTS tb_user;
+CREATE TABLE tb_user (
+  id bigint NOT NULL AUTO_INCREMENT,
+  phone varchar(11) NOT NULL,
+  password varchar(128) DEFAULT '',
+  nick_name varchar(32) DEFAULT '',
+  icon varchar(255) DEFAULT '',
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE (phone)
+);
+
+DROP TABLE IF EXISTS tb_user_info;
+CREATE TABLE tb_user_info (
+  user_id bigint NOT NULL,
+  city varchar(64) DEFAULT '',
+  introduce varchar(128) DEFAULT NULL,
+  fans int DEFAULT 0,
+  followee int DEFAULT 0,
+  gender tinyint DEFAULT 0,
+  birthday date DEFAULT NULL,
+  credits int DEFAULT 0,
+  level tinyint DEFAULT 0,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (user_id)
+);
+
+DROP TABLE IF EXISTS tb_voucher;
+CREATE TABLE tb_voucher (
+  id bigint NOT NULL AUTO_INCREMENT,
+  shop_id bigint DEFAULT NULL,
+  title varchar(255) NOT NULL,
+  sub_title varchar(255) DEFAULT NULL,
+  rules varchar(1024) DEFAULT NULL,
+  pay_value bigint NOT NULL,
+  actual_value bigint NOT NULL,
+  type tinyint NOT NULL DEFAULT 0,
+  status tinyint NOT NULL DEFAULT 1,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+DROP TABLE IF EXISTS tb_voucher_order;
+CREATE TABLE tb_voucher_order (
+  id bigint NOT NULL,
+  user_id bigint NOT NULL,
+  voucher_id bigint NOT NULL,
+  pay_type tinyint NOT NULL DEFAULT 1,
+  status tinyint NOT NULL DEFAULT 1,
+  create_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  pay_time timestamp NULL DEFAULT NULL,
+  use_time timestamp NULL DEFAULT NULL,
+  refund_time timestamp NULL DEFAULT NULL,
+  update_time timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX uk_user_voucher ON tb_voucher_order (user_id, voucher_id);